@@ -0,0 +1,140 @@
+package net.disy.oss.spantable.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JViewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.disy.oss.spantable.DelegatingSpanTableModel;
+import net.disy.oss.spantable.SpanTable;
+import net.disy.oss.spantable.SpanTableHelper;
+import net.disy.oss.spantable.SpanTableUi;
+
+/**
+ * Measures painting a full screen of a SpanTable into a BufferedImage and the
+ * adjustment of dirty regions. Runs headless, so no display is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class PaintBenchmark {
+  private static final int POSITION_COUNT = 256;
+  private static final int WIDTH = 3840;
+  private static final int HEIGHT = 2160;
+
+  @Param({"SPAN_TABLE_MODEL", "INTERVAL_TREE", "PACKED"})
+  public SpanFixture.ModelType modelType;
+
+  /** Use -p rowCount=10000000 for the largest tables. */
+  @Param({"10000", "1000000"})
+  public int rowCount;
+
+  @Param({"0.01", "0.5"})
+  public double density;
+
+  @Param({"NARROW", "WIDE"})
+  public SpanFixture.Shape shape;
+
+  private SpanTable table;
+  private JViewport viewport;
+  private SpanTableUi ui;
+  private BufferedImage image;
+  private Graphics2D graphics;
+  private Point[] positions;
+  private Rectangle[] dirtyRects;
+  private final Rectangle dirtyRect = new Rectangle();
+  private final Rectangle visibleRect = new Rectangle();
+  private final Point point = new Point();
+  private int next;
+
+  @Setup
+  public void setUp() {
+    table = new SpanTable();
+    table.setModel(new DelegatingSpanTableModel(
+        SpanFixture.createTableModel(rowCount),
+        modelType.create(SpanFixture.createSpans(rowCount, density, shape))));
+    ui = new SpanTableUi();
+    table.setUI(ui);
+    table.setSize(WIDTH, rowCount * table.getRowHeight());
+    table.doLayout();
+    viewport = new JViewport();
+    viewport.setView(table);
+    viewport.setSize(WIDTH, HEIGHT);
+
+    image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    graphics = image.createGraphics();
+
+    var random = new Random(7);
+    positions = new Point[POSITION_COUNT];
+    dirtyRects = new Rectangle[POSITION_COUNT];
+    for (int i = 0; i < POSITION_COUNT; i++) {
+      positions[i] = new Point(0, random.nextInt(Math.max(table.getHeight() - HEIGHT, 1)));
+      dirtyRects[i] = table.getCellRect(
+          table.rowAtPoint(positions[0]) + random.nextInt(HEIGHT / table.getRowHeight()),
+          random.nextInt(SpanFixture.COLUMN_COUNT),
+          false);
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void scrollToFirstPosition() {
+    viewport.setViewPosition(positions[0]);
+    table.computeVisibleRect(visibleRect);
+  }
+
+  @TearDown
+  public void tearDown() {
+    graphics.dispose();
+  }
+
+  private int nextPosition() {
+    next = (next + 1) & (POSITION_COUNT - 1);
+    return next;
+  }
+
+  @Benchmark
+  public BufferedImage paint() {
+    var position = positions[nextPosition()];
+    viewport.setViewPosition(position);
+    var g = (Graphics2D) graphics.create();
+    try {
+      g.translate(-position.x, -position.y);
+      g.setClip(position.x, position.y, WIDTH, HEIGHT);
+      ui.paint(g, table);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+
+  /**
+   * Adjusts the area of a single visible cell, like a repaint of the caret.
+   */
+  @Benchmark
+  public Rectangle adjustDirtyRect() {
+    dirtyRect.setBounds(dirtyRects[nextPosition()]);
+    SpanTableHelper.adjustDirtyRect(table, table.getSpanModel(), dirtyRect, visibleRect, point);
+    return dirtyRect;
+  }
+}
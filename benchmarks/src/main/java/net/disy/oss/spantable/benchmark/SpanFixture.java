@@ -0,0 +1,117 @@
+package net.disy.oss.spantable.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+
+import net.disy.oss.spantable.CellSpan;
+import net.disy.oss.spantable.ISpanTableModel;
+import net.disy.oss.spantable.IntervalTreeSpanTableModel;
+import net.disy.oss.spantable.PackedSpanTableModel;
+import net.disy.oss.spantable.SpanTableModel;
+
+/**
+ * Creates reproducible tables and CellSpans for the benchmarks.
+ */
+public final class SpanFixture {
+  static final int COLUMN_COUNT = 20;
+  static final int[] SPAN_COLUMNS = {0, 1, 2, 3, 4, 5};
+
+  /**
+   * The shape of the generated CellSpans.
+   */
+  public enum Shape {
+    /** One column and 2 to 10 rows. */
+    NARROW(1, 2, 10),
+    /** Three columns and 2 to 200 rows. */
+    WIDE(3, 2, 200);
+
+    private final int width;
+    private final int minHeight;
+    private final int maxHeight;
+
+    Shape(int width, int minHeight, int maxHeight) {
+      this.width = width;
+      this.minHeight = minHeight;
+      this.maxHeight = maxHeight;
+    }
+  }
+
+  public enum ModelType {
+    SPAN_TABLE_MODEL {
+      @Override
+      ISpanTableModel create(List<CellSpan> spans) {
+        return new SpanTableModel(spans, SPAN_COLUMNS);
+      }
+    },
+    INTERVAL_TREE {
+      @Override
+      ISpanTableModel create(List<CellSpan> spans) {
+        return new IntervalTreeSpanTableModel(spans, SPAN_COLUMNS);
+      }
+    },
+    PACKED {
+      @Override
+      ISpanTableModel create(List<CellSpan> spans) {
+        return new PackedSpanTableModel(spans, SPAN_COLUMNS);
+      }
+    };
+
+    abstract ISpanTableModel create(List<CellSpan> spans);
+  }
+
+  private SpanFixture() {
+  }
+
+  /**
+   * Creates not intersecting CellSpans in {@link #SPAN_COLUMNS}.
+   * @param rowCount The number of rows of the table.
+   * @param density The fraction of the cells in the span columns covered by CellSpans.
+   * @param shape The shape of the CellSpans.
+   * @return The CellSpans.
+   */
+  static List<CellSpan> createSpans(int rowCount, double density, Shape shape) {
+    var random = new Random(42);
+    var meanHeight = (shape.minHeight + shape.maxHeight) / 2.0;
+    // probability to start a CellSpan in a row, so that the expected coverage is density
+    var startProbability = density / (meanHeight * (1 - density) + density);
+    var spans = new ArrayList<CellSpan>();
+    for (int column = 0; column + shape.width <= SPAN_COLUMNS.length; column += shape.width) {
+      var row = 0;
+      while (row < rowCount) {
+        if (random.nextDouble() < startProbability) {
+          var height = Math.min(
+              shape.minHeight + random.nextInt(shape.maxHeight - shape.minHeight + 1),
+              rowCount - row);
+          spans.add(new CellSpan(row, column, height, shape.width));
+          row += height;
+        } else {
+          row++;
+        }
+      }
+    }
+    return spans;
+  }
+
+  static TableModel createTableModel(int rowCount) {
+    return new AbstractTableModel() {
+      @Override
+      public int getRowCount() {
+        return rowCount;
+      }
+
+      @Override
+      public int getColumnCount() {
+        return COLUMN_COUNT;
+      }
+
+      @Override
+      public Object getValueAt(int rowIndex, int columnIndex) {
+        return columnIndex < SPAN_COLUMNS.length ? "group " + columnIndex : rowIndex;
+      }
+    };
+  }
+}
@@ -0,0 +1,92 @@
+package net.disy.oss.spantable.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.disy.oss.spantable.CellSpan;
+import net.disy.oss.spantable.ISpanTableModel;
+
+/**
+ * Measures the span queries used while painting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SpanLookupBenchmark {
+  private static final int QUERY_COUNT = 4096;
+  /** The number of rows visible on a large screen. */
+  private static final int VISIBLE_ROWS = 120;
+
+  @Param({"SPAN_TABLE_MODEL", "INTERVAL_TREE", "PACKED"})
+  public SpanFixture.ModelType modelType;
+
+  /** Use -p rowCount=10000000 for the largest tables. */
+  @Param({"10000", "1000000"})
+  public int rowCount;
+
+  @Param({"0.01", "0.5"})
+  public double density;
+
+  @Param({"NARROW", "WIDE"})
+  public SpanFixture.Shape shape;
+
+  private ISpanTableModel model;
+  private int[] rows;
+  private int[] columns;
+  private CellSpan[] visibleAreas;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    model = modelType.create(SpanFixture.createSpans(rowCount, density, shape));
+    var random = new Random(7);
+    rows = new int[QUERY_COUNT];
+    columns = new int[QUERY_COUNT];
+    visibleAreas = new CellSpan[QUERY_COUNT];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      rows[i] = random.nextInt(rowCount);
+      columns[i] = random.nextInt(SpanFixture.SPAN_COLUMNS.length);
+      var firstRow = random.nextInt(Math.max(rowCount - VISIBLE_ROWS, 1));
+      visibleAreas[i] = new CellSpan(firstRow, 0, VISIBLE_ROWS, SpanFixture.COLUMN_COUNT);
+    }
+  }
+
+  private int nextQuery() {
+    next = (next + 1) & (QUERY_COUNT - 1);
+    return next;
+  }
+
+  @Benchmark
+  public Optional<CellSpan> getCellSpanContaining() {
+    var i = nextQuery();
+    return model.getCellSpanContaining(rows[i], columns[i]);
+  }
+
+  @Benchmark
+  public long findSpanIndex() {
+    var i = nextQuery();
+    return model.findSpanIndex(rows[i], columns[i]);
+  }
+
+  @Benchmark
+  public List<CellSpan> getIntersectingCellSpans() {
+    return model.getIntersectingCellSpans(visibleAreas[nextQuery()]);
+  }
+}
@@ -0,0 +1,45 @@
+package net.disy.oss.spantable;
+
+import javax.swing.event.EventListenerList;
+
+/**
+ * Manages the {@link SpanModelListener}s of an {@link ISpanTableModel} whose
+ * CellSpans can change.
+ */
+public abstract class AbstractSpanTableModel implements ISpanTableModel {
+  protected final EventListenerList listenerList = new EventListenerList();
+
+  @Override
+  public void addSpanModelListener(SpanModelListener l) {
+    listenerList.add(SpanModelListener.class, l);
+  }
+
+  @Override
+  public void removeSpanModelListener(SpanModelListener l) {
+    listenerList.remove(SpanModelListener.class, l);
+  }
+
+  /**
+   * Notifies all listeners that the CellSpans in the given area changed.
+   * @param area The cells affected by the change or null if all cells are affected.
+   */
+  protected void fireSpansChanged(CellSpan area) {
+    fireSpansChanged(new SpanModelEvent(this, area));
+  }
+
+  /**
+   * Notifies all listeners that all CellSpans might have changed.
+   */
+  protected void fireAllSpansChanged() {
+    fireSpansChanged(new SpanModelEvent(this));
+  }
+
+  protected void fireSpansChanged(SpanModelEvent e) {
+    Object[] listeners = listenerList.getListenerList();
+    for (int i = listeners.length - 2; i >= 0; i -= 2) {
+      if (listeners[i] == SpanModelListener.class) {
+        ((SpanModelListener) listeners[i + 1]).spansChanged(e);
+      }
+    }
+  }
+}
@@ -3,13 +3,13 @@ package net.disy.oss.spantable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
 public class CellSpan {
   private final int row;
   private final int column;
   private final int rowSpan;
   private final int columnSpan;
-  private List<int[]> spans;
 
   public CellSpan(int row, int column, int rowSpan, int columnSpan) {
     this.row = row;
@@ -49,17 +49,28 @@ public class CellSpan {
         column < getStartColumn() + getColumnSpan();
   }
 
+  /**
+   * Creates a new List containing row and column of every cell in this CellSpan.
+   * @return The cells of this CellSpan.
+   * @deprecated Creates an array per cell, use {@link #forEachCell(CellConsumer)} instead.
+   */
+  @Deprecated
   public List<int[]> getSpannedCells() {
-    if (spans != null) {
-      return spans;
-    }
-    spans = new ArrayList<>();
+    var cells = new ArrayList<int[]>();
+    forEachCell((r, c) -> cells.add(new int[]{r, c}));
+    return cells;
+  }
+
+  /**
+   * Calls the consumer for every cell in this CellSpan, row by row.
+   * @param consumer The consumer receiving row and column of each cell.
+   */
+  public void forEachCell(CellConsumer consumer) {
     for (int r = getStartRow(); r <= getEndRow(); r++) {
       for (int c = getStartColumn(); c <= getEndColumn(); c++) {
-        spans.add(new int[]{r, c});
+        consumer.accept(r, c);
       }
     }
-    return spans;
   }
 
   public int[] getSpannedColumns() {
@@ -80,6 +91,26 @@ public class CellSpan {
 
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CellSpan)) {
+      return false;
+    }
+    var other = (CellSpan) o;
+    return row == other.row &&
+        column == other.column &&
+        rowSpan == other.rowSpan &&
+        columnSpan == other.columnSpan;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(row, column, rowSpan, columnSpan);
+  }
+
   @Override
   public String toString() {
     return "CellSpan{" +
@@ -98,6 +129,14 @@ public class CellSpan {
         endColumn - startColumn + 1);
   }
 
+  /**
+   * Receives the cells of a CellSpan without creating objects per cell.
+   */
+  @FunctionalInterface
+  public interface CellConsumer {
+    void accept(int row, int column);
+  }
+
   /**
    * Compares two CellSpans.
    * Returns 0 if the CellSpans intersect, otherwise the startRows are compared.
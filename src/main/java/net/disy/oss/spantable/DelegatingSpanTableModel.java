@@ -6,13 +6,52 @@ import java.util.Optional;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
 
-public class DelegatingSpanTableModel implements ISpanTableModel, TableModel {
+/**
+ * Combines a TableModel and an ISpanTableModel into one model for a {@link SpanTable}.
+ * <p>
+ * The ISpanTableModel can be replaced with {@link #setSpanModel(ISpanTableModel)},
+ * e.g. by a model built in the background with {@link SpanTableModelBuilder}.
+ * The {@link SpanModelListener}s are registered at this model, so they stay registered
+ * when the ISpanTableModel is replaced. Events of the ISpanTableModel are passed on
+ * with this model as source.
+ */
+public class DelegatingSpanTableModel extends AbstractSpanTableModel implements TableModel {
   private final TableModel tableModelDelegate;
-  private final ISpanTableModel spanModelDelegate;
+  private ISpanTableModel spanModelDelegate;
+  private final SpanModelListener spanModelListener = e -> fireSpansChanged(e.getArea());
 
   public DelegatingSpanTableModel(TableModel tableModelDelegate, ISpanTableModel spanModelDelegate) {
     this.tableModelDelegate = tableModelDelegate;
     this.spanModelDelegate = spanModelDelegate;
+    spanModelDelegate.addSpanModelListener(spanModelListener);
+  }
+
+  /**
+   * @return The ISpanTableModel this model delegates to.
+   */
+  public ISpanTableModel getSpanModel() {
+    return spanModelDelegate;
+  }
+
+  /**
+   * Replaces the ISpanTableModel and notifies the listeners once that all CellSpans
+   * changed, so a {@link SpanTable} repaints once.
+   * <p>
+   * Like the other changes of Swing models this method has to be called on the event
+   * dispatch thread. A model constructed on another thread is safely published if it
+   * is handed over to the event dispatch thread with
+   * {@link javax.swing.SwingUtilities#invokeLater(Runnable)}, since everything the
+   * other thread did before calling invokeLater happens-before the Runnable is run.
+   * @param spanModel The new ISpanTableModel.
+   */
+  public void setSpanModel(ISpanTableModel spanModel) {
+    if (spanModel == spanModelDelegate) {
+      return;
+    }
+    spanModelDelegate.removeSpanModelListener(spanModelListener);
+    spanModelDelegate = spanModel;
+    spanModel.addSpanModelListener(spanModelListener);
+    fireAllSpansChanged();
   }
 
   @Override
@@ -30,6 +69,36 @@ public class DelegatingSpanTableModel implements ISpanTableModel, TableModel {
     return spanModelDelegate.containsSpans(column);
   }
 
+  @Override
+  public long findSpanIndex(int row, int column) {
+    return spanModelDelegate.findSpanIndex(row, column);
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return spanModelDelegate.getCellSpan(spanIndex);
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return spanModelDelegate.getSpanStartRow(spanIndex);
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return spanModelDelegate.getSpanStartColumn(spanIndex);
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return spanModelDelegate.getSpanEndRow(spanIndex);
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return spanModelDelegate.getSpanEndColumn(spanIndex);
+  }
+
   @Override
   public int getRowCount() {
     return tableModelDelegate.getRowCount();
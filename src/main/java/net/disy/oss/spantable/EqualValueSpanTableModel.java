@@ -0,0 +1,435 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+/**
+ * An ISpanTableModel which merges vertically adjacent cells with equal values.
+ * <p>
+ * The columns given as <code>cellSpanColumns</code> form a hierarchy in the given
+ * order: cells in the second column are only merged within a CellSpan of the first
+ * column and so on. All CellSpans span a single column.
+ * <p>
+ * The CellSpans are derived on demand. For every row the model lazily computes and
+ * caches the first level of the hierarchy at which the row differs from the previous
+ * row. Only the rows of CellSpans that are requested, e.g. for painting, are looked at.
+ * The rows are indexed in chunks of {@value #CHUNK_SIZE} rows by a tree holding the
+ * smallest of these levels per chunk. Once the rows of a CellSpan were compared,
+ * finding its start and end takes O(log n) instead of walking its rows. Finding a
+ * CellSpan for the first time still compares each of its rows once.
+ * On a <code>TableModelEvent</code> only the cached values of the changed rows are
+ * discarded and the listeners are notified about the cells whose CellSpans might have
+ * changed.
+ * <p>
+ * Like Swing models this class is not thread safe and should only be used on the
+ * event dispatch thread.
+ */
+public class EqualValueSpanTableModel extends AbstractSpanTableModel implements TableModelListener {
+  private static final int UNKNOWN = -1;
+  static final int CHUNK_SIZE = 64;
+
+  private final TableModel tableModel;
+  private final int[] cellSpanColumns;
+  /** For each row the first level at which it differs from the previous row, or UNKNOWN. */
+  private int[] boundaryLevels;
+  private int rowCount;
+  /**
+   * A tree of minimums over the chunks of rows. The leaf of a chunk holds the smallest
+   * boundary level of its rows or UNKNOWN if the level of one of its rows is unknown.
+   * Leaves without a chunk hold Integer.MAX_VALUE.
+   */
+  private int[] chunkLevels;
+  private int leafCount;
+  /** The rows of the last CellSpan found for each level. */
+  private final int[] lastStartRows;
+  private final int[] lastEndRows;
+
+  /**
+   * Creates an instance of EqualValueSpanTableModel and registers it as listener
+   * of the given TableModel.
+   * @param tableModel The TableModel providing the values to compare.
+   * @param cellSpanColumns The columns in which cells are merged, in hierarchical order.
+   */
+  public EqualValueSpanTableModel(TableModel tableModel, int[] cellSpanColumns) {
+    this.tableModel = tableModel;
+    this.cellSpanColumns = cellSpanColumns;
+    this.lastStartRows = new int[cellSpanColumns.length];
+    this.lastEndRows = new int[cellSpanColumns.length];
+    reset();
+    tableModel.addTableModelListener(this);
+  }
+
+  /**
+   * Unregisters this model from its TableModel.
+   */
+  public void dispose() {
+    tableModel.removeTableModelListener(this);
+  }
+
+  private void reset() {
+    rowCount = tableModel.getRowCount();
+    boundaryLevels = new int[rowCount];
+    Arrays.fill(boundaryLevels, UNKNOWN);
+    buildChunks();
+    forgetLastSpans();
+  }
+
+  private void buildChunks() {
+    var chunkCount = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    leafCount = 1;
+    while (leafCount < chunkCount) {
+      leafCount *= 2;
+    }
+    chunkLevels = new int[2 * leafCount];
+    Arrays.fill(chunkLevels, leafCount, chunkLevels.length, Integer.MAX_VALUE);
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      chunkLevels[leafCount + chunk] = knownChunkLevel(chunk);
+    }
+    for (int node = leafCount - 1; node >= 1; node--) {
+      chunkLevels[node] = Math.min(chunkLevels[2 * node], chunkLevels[2 * node + 1]);
+    }
+  }
+
+  private int knownChunkLevel(int chunk) {
+    var level = Integer.MAX_VALUE;
+    var end = Math.min((chunk + 1) * CHUNK_SIZE, rowCount);
+    for (int row = chunk * CHUNK_SIZE; row < end; row++) {
+      var rowLevel = knownLevel(row);
+      if (rowLevel == UNKNOWN) {
+        return UNKNOWN;
+      }
+      level = Math.min(level, rowLevel);
+    }
+    return level;
+  }
+
+  private void updateChunk(int chunk) {
+    var node = leafCount + chunk;
+    chunkLevels[node] = knownChunkLevel(chunk);
+    for (node /= 2; node >= 1; node /= 2) {
+      chunkLevels[node] = Math.min(chunkLevels[2 * node], chunkLevels[2 * node + 1]);
+    }
+  }
+
+  private void forgetLastSpans() {
+    Arrays.fill(lastStartRows, 0);
+    Arrays.fill(lastEndRows, -1);
+  }
+
+  private int levelOf(int column) {
+    for (int level = 0; level < cellSpanColumns.length; level++) {
+      if (cellSpanColumns[level] == column) {
+        return level;
+      }
+    }
+    return -1;
+  }
+
+  private int boundaryLevel(int row) {
+    if (row == 0) {
+      return 0;
+    }
+    var level = boundaryLevels[row];
+    if (level == UNKNOWN) {
+      level = 0;
+      while (level < cellSpanColumns.length &&
+          Objects.equals(
+              tableModel.getValueAt(row - 1, cellSpanColumns[level]),
+              tableModel.getValueAt(row, cellSpanColumns[level]))) {
+        level++;
+      }
+      boundaryLevels[row] = level;
+    }
+    return level;
+  }
+
+  private int knownLevel(int row) {
+    return row == 0 ? 0 : boundaryLevels[row];
+  }
+
+  private int rowLevel(int row, boolean compute) {
+    return compute ? boundaryLevel(row) : knownLevel(row);
+  }
+
+  /**
+   * Finds the rows of the group containing row at the given level and stores them
+   * in lastStartRows and lastEndRows.
+   */
+  private void locate(int row, int level) {
+    if (row >= lastStartRows[level] && row <= lastEndRows[level]) {
+      return;
+    }
+    lastStartRows[level] = findBoundaryAtOrBefore(row, level, true);
+    lastEndRows[level] = findBoundaryAfter(row, level, true) - 1;
+  }
+
+  /**
+   * Returns the last row at or before row starting a group at the given level. With
+   * compute the unknown levels of the searched rows are computed, otherwise rows with
+   * an unknown level are treated as the start of a group.
+   */
+  private int findBoundaryAtOrBefore(int row, int level, boolean compute) {
+    var chunk = row / CHUNK_SIZE;
+    while (true) {
+      for (int r = row; r >= chunk * CHUNK_SIZE; r--) {
+        if (rowLevel(r, compute) <= level) {
+          return r;
+        }
+      }
+      if (compute) {
+        updateChunk(chunk);
+      }
+      // row 0 starts a group at every level, so there is such a chunk
+      chunk = findLastChunkAtMost(1, 0, leafCount - 1, chunk - 1, level);
+      row = Math.min((chunk + 1) * CHUNK_SIZE, rowCount) - 1;
+    }
+  }
+
+  /**
+   * Returns the first row after row starting a group at the given level, or the row
+   * count if there is none. Unknown levels are handled like in
+   * {@link #findBoundaryAtOrBefore(int, int, boolean)}.
+   */
+  private int findBoundaryAfter(int row, int level, boolean compute) {
+    var chunk = row / CHUNK_SIZE;
+    var from = row + 1;
+    while (true) {
+      var end = Math.min((chunk + 1) * CHUNK_SIZE, rowCount);
+      for (int r = from; r < end; r++) {
+        if (rowLevel(r, compute) <= level) {
+          return r;
+        }
+      }
+      if (compute) {
+        updateChunk(chunk);
+      }
+      chunk = findFirstChunkAtMost(1, 0, leafCount - 1, chunk + 1, level);
+      if (chunk < 0) {
+        return rowCount;
+      }
+      from = chunk * CHUNK_SIZE;
+    }
+  }
+
+  /**
+   * Returns the last chunk up to the chunk to whose level is at most level, or -1.
+   * The node covers the chunks from first to last.
+   */
+  private int findLastChunkAtMost(int node, int first, int last, int to, int level) {
+    if (first > to || chunkLevels[node] > level) {
+      return -1;
+    }
+    if (first == last) {
+      return first;
+    }
+    var middle = (first + last) >>> 1;
+    var chunk = findLastChunkAtMost(2 * node + 1, middle + 1, last, to, level);
+    return chunk >= 0 ? chunk : findLastChunkAtMost(2 * node, first, middle, to, level);
+  }
+
+  /**
+   * Returns the first chunk from the chunk from on whose level is at most level, or -1.
+   * The node covers the chunks from first to last.
+   */
+  private int findFirstChunkAtMost(int node, int first, int last, int from, int level) {
+    if (last < from || chunkLevels[node] > level) {
+      return -1;
+    }
+    if (first == last) {
+      return first;
+    }
+    var middle = (first + last) >>> 1;
+    var chunk = findFirstChunkAtMost(2 * node, first, middle, from, level);
+    return chunk >= 0 ? chunk : findFirstChunkAtMost(2 * node + 1, middle + 1, last, from, level);
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(getCellSpan(spanIndex));
+  }
+
+  /**
+   * The returned index encodes the upper left cell of the CellSpan like the default implementation.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    var level = levelOf(column);
+    if (level < 0 || row < 0 || row >= rowCount) {
+      return NO_SPAN;
+    }
+    locate(row, level);
+    if (lastStartRows[level] == lastEndRows[level]) {
+      return NO_SPAN;
+    }
+    return ((long) lastStartRows[level] << 32) | column;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return CellSpan.fromStartEnd(
+        getSpanStartRow(spanIndex),
+        getSpanStartColumn(spanIndex),
+        getSpanEndRow(spanIndex),
+        getSpanEndColumn(spanIndex));
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    var level = levelOf(getSpanStartColumn(spanIndex));
+    locate(getSpanStartRow(spanIndex), level);
+    return lastEndRows[level];
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return getSpanStartColumn(spanIndex);
+  }
+
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    var result = new ArrayList<CellSpan>();
+    var lastRow = Math.min(cellSpan.getEndRow(), rowCount - 1);
+    for (var column : cellSpan.getSpannedColumns()) {
+      var level = levelOf(column);
+      if (level < 0) {
+        continue;
+      }
+      var row = Math.max(cellSpan.getStartRow(), 0);
+      while (row <= lastRow) {
+        locate(row, level);
+        if (lastEndRows[level] > lastStartRows[level]) {
+          result.add(CellSpan.fromStartEnd(lastStartRows[level], column, lastEndRows[level], column));
+        }
+        row = lastEndRows[level] + 1;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    return levelOf(column) >= 0;
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    if (e.getFirstRow() == TableModelEvent.HEADER_ROW ||
+        e.getLastRow() == Integer.MAX_VALUE ||
+        tableModel.getRowCount() != rowCount + rowCountDelta(e)) {
+      reset();
+      fireAllSpansChanged();
+      return;
+    }
+    var firstRow = e.getFirstRow();
+    var lastRow = e.getLastRow();
+    // CellSpans which were computed before might reach to the rows around the change
+    var areaStart = knownGroupStart(firstRow - 1);
+    int areaEnd;
+    switch (e.getType()) {
+      case TableModelEvent.INSERT:
+        insertRows(firstRow, lastRow - firstRow + 1);
+        invalidate(firstRow, lastRow + 1);
+        areaEnd = lastRow + 1;
+        break;
+      case TableModelEvent.DELETE:
+        deleteRows(firstRow, lastRow - firstRow + 1);
+        invalidate(firstRow, firstRow);
+        areaEnd = firstRow;
+        break;
+      default:
+        if (e.getColumn() != TableModelEvent.ALL_COLUMNS && levelOf(e.getColumn()) < 0) {
+          return;
+        }
+        areaEnd = knownGroupEnd(lastRow + 1);
+        invalidate(firstRow, lastRow + 1);
+        break;
+    }
+    forgetLastSpans();
+    areaStart = Math.max(areaStart, 0);
+    areaEnd = Math.min(areaEnd, rowCount - 1);
+    if (areaStart <= areaEnd && cellSpanColumns.length > 0) {
+      fireSpansChanged(CellSpan.fromStartEnd(areaStart, minColumn(), areaEnd, maxColumn()));
+    }
+  }
+
+  private static int rowCountDelta(TableModelEvent e) {
+    var count = e.getLastRow() - e.getFirstRow() + 1;
+    switch (e.getType()) {
+      case TableModelEvent.INSERT:
+        return count;
+      case TableModelEvent.DELETE:
+        return -count;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Walks upwards from row as long as the rows are known to belong to the same group
+   * at the first level.
+   */
+  private int knownGroupStart(int row) {
+    if (row <= 0 || row >= rowCount) {
+      return row;
+    }
+    return findBoundaryAtOrBefore(row, 0, false);
+  }
+
+  /**
+   * Walks downwards from row as long as the rows are known to belong to the same group
+   * at the first level.
+   */
+  private int knownGroupEnd(int row) {
+    if (row < 0 || row + 1 >= rowCount) {
+      return row;
+    }
+    return findBoundaryAfter(row, 0, false) - 1;
+  }
+
+  private void invalidate(int firstRow, int lastRow) {
+    firstRow = Math.max(firstRow, 0);
+    lastRow = Math.min(lastRow, rowCount - 1);
+    for (int row = firstRow; row <= lastRow; row++) {
+      boundaryLevels[row] = UNKNOWN;
+    }
+    for (int chunk = firstRow / CHUNK_SIZE; chunk <= lastRow / CHUNK_SIZE && firstRow <= lastRow; chunk++) {
+      updateChunk(chunk);
+    }
+  }
+
+  private void insertRows(int firstRow, int count) {
+    var levels = new int[rowCount + count];
+    System.arraycopy(boundaryLevels, 0, levels, 0, firstRow);
+    Arrays.fill(levels, firstRow, firstRow + count, UNKNOWN);
+    System.arraycopy(boundaryLevels, firstRow, levels, firstRow + count, rowCount - firstRow);
+    boundaryLevels = levels;
+    rowCount += count;
+    buildChunks();
+  }
+
+  private void deleteRows(int firstRow, int count) {
+    System.arraycopy(boundaryLevels, firstRow + count, boundaryLevels, firstRow, rowCount - firstRow - count);
+    rowCount -= count;
+    Arrays.fill(boundaryLevels, rowCount, boundaryLevels.length, UNKNOWN);
+    buildChunks();
+  }
+
+  private int minColumn() {
+    return Arrays.stream(cellSpanColumns).min().orElseThrow();
+  }
+
+  private int maxColumn() {
+    return Arrays.stream(cellSpanColumns).max().orElseThrow();
+  }
+}
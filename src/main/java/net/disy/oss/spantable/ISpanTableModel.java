@@ -4,6 +4,11 @@ import java.util.List;
 import java.util.Optional;
 
 public interface ISpanTableModel {
+  /**
+   * Returned by {@link #findSpanIndex(int, int)} if no CellSpan contains the cell.
+   */
+  long NO_SPAN = -1;
+
   /**
    * Returns a CellSpan which contains the cell specified by row and column if there is one.
    * CellSpans are not allowed to intersect each other. So this method returns either one or none.
@@ -28,4 +33,83 @@ public interface ISpanTableModel {
    * @return True if the column could contain CellSpans.
    */
   boolean containsSpans(int column);
+
+  /**
+   * Adds a listener which is notified when the CellSpans of this model change.
+   * The default implementation does nothing, which is correct for models whose
+   * CellSpans never change.
+   * @param l The listener to add.
+   */
+  default void addSpanModelListener(SpanModelListener l) {
+  }
+
+  /**
+   * Removes a listener added by {@link #addSpanModelListener(SpanModelListener)}.
+   * @param l The listener to remove.
+   */
+  default void removeSpanModelListener(SpanModelListener l) {
+  }
+
+  /**
+   * Like {@link #getCellSpanContaining(int, int)}, but returns an index for the CellSpan
+   * instead of the CellSpan itself. The index can be passed to the <code>getSpan...</code>
+   * methods of this model and is valid as long as the CellSpans of the model do not change.
+   * This method is called for every painted cell and should not allocate any objects.
+   * <p>
+   * The default implementation delegates to {@link #getCellSpanContaining(int, int)} and
+   * encodes the upper left cell of the CellSpan in the index. Implementations overriding
+   * this method have to override all <code>getSpan...</code> methods as well.
+   * @param row An index specifying the row.
+   * @param column An index specifying the column.
+   * @return An index for the CellSpan containing row and column or {@link #NO_SPAN}.
+   */
+  default long findSpanIndex(int row, int column) {
+    var cellSpan = getCellSpanContaining(row, column);
+    if (cellSpan.isEmpty()) {
+      return NO_SPAN;
+    }
+    var span = cellSpan.get();
+    return ((long) span.getStartRow() << 32) | span.getStartColumn();
+  }
+
+  /**
+   * @param spanIndex An index returned by {@link #findSpanIndex(int, int)}.
+   * @return The CellSpan for the index.
+   */
+  default CellSpan getCellSpan(long spanIndex) {
+    return getCellSpanContaining(getSpanStartRow(spanIndex), getSpanStartColumn(spanIndex))
+        .orElseThrow();
+  }
+
+  /**
+   * @param spanIndex An index returned by {@link #findSpanIndex(int, int)}.
+   * @return The first row of the CellSpan.
+   */
+  default int getSpanStartRow(long spanIndex) {
+    return (int) (spanIndex >>> 32);
+  }
+
+  /**
+   * @param spanIndex An index returned by {@link #findSpanIndex(int, int)}.
+   * @return The first column of the CellSpan.
+   */
+  default int getSpanStartColumn(long spanIndex) {
+    return (int) spanIndex;
+  }
+
+  /**
+   * @param spanIndex An index returned by {@link #findSpanIndex(int, int)}.
+   * @return The last row of the CellSpan.
+   */
+  default int getSpanEndRow(long spanIndex) {
+    return getCellSpan(spanIndex).getEndRow();
+  }
+
+  /**
+   * @param spanIndex An index returned by {@link #findSpanIndex(int, int)}.
+   * @return The last column of the CellSpan.
+   */
+  default int getSpanEndColumn(long spanIndex) {
+    return getCellSpan(spanIndex).getEndColumn();
+  }
 }
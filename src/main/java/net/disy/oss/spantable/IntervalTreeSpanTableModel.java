@@ -0,0 +1,216 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This class stores the CellSpans in a centered interval tree over the rows.
+ * Each node holds all CellSpans containing the center row of the node. Since
+ * CellSpans do not intersect each other, the CellSpans of a node are disjoint in
+ * their columns and can be kept sorted by their start column. A node is searched
+ * with a binary search on the columns, so a wide CellSpan is stored only once.
+ * <p>
+ * The tree has a depth of O(log n), which makes {@link #getCellSpanContaining(int, int)}
+ * O(log n * log c), where c is the number of CellSpans per node. It is independent of
+ * the height and width of the CellSpans.
+ * {@link #getIntersectingCellSpans(CellSpan)} visits every node whose center row lies in
+ * the requested rows, even if the node has no CellSpan in the requested columns, and
+ * the nodes on the paths to them. This makes it O((m + log n) * log c + k) for m nodes
+ * with a center in the requested rows and k returned CellSpans, so a tall query costs
+ * more than a short one.
+ * <p>
+ * It can be used as a drop-in replacement for {@link SpanTableModel}.
+ */
+public class IntervalTreeSpanTableModel implements ISpanTableModel {
+  private final int[] cellSpanColumns;
+  /** All CellSpans. Each node owns a contiguous part sorted by start column. */
+  private final CellSpan[] spans;
+  private final Node root;
+  private int size;
+
+  /**
+   * Creates an instance of IntervalTreeSpanTableModel.
+   * The CellSpans are assumed to
+   * not intersect each other. This has to be checked before construction by the caller.
+   * @param spans A List of not intersecting CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   */
+  public IntervalTreeSpanTableModel(List<CellSpan> spans, int[] cellSpanColumns) {
+    this.cellSpanColumns = cellSpanColumns;
+    this.spans = new CellSpan[spans.size()];
+    var sortedByStartRow = new ArrayList<>(spans);
+    sortedByStartRow.sort(Comparator.comparingInt(CellSpan::getStartRow));
+    this.root = build(sortedByStartRow);
+  }
+
+  private Node build(List<CellSpan> sortedByStartRow) {
+    if (sortedByStartRow.isEmpty()) {
+      return null;
+    }
+    var center = sortedByStartRow.get(sortedByStartRow.size() / 2).getStartRow();
+    var before = new ArrayList<CellSpan>();
+    var after = new ArrayList<CellSpan>();
+    var from = size;
+    for (var span : sortedByStartRow) {
+      if (span.getEndRow() < center) {
+        before.add(span);
+      } else if (span.getStartRow() > center) {
+        after.add(span);
+      } else {
+        spans[size++] = span;
+      }
+    }
+    var to = size;
+    Arrays.sort(spans, from, to, Comparator.comparingInt(CellSpan::getStartColumn));
+    return new Node(center, from, to, build(before), build(after));
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(spans[(int) spanIndex]);
+  }
+
+  /**
+   * The returned index is the position of the CellSpan in the tree.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    var node = root;
+    while (node != null) {
+      var i = node.findColumn(column);
+      if (i >= 0 && spans[i].contains(row, column)) {
+        return i;
+      }
+      if (row < node.center) {
+        node = node.before;
+      } else if (row > node.center) {
+        node = node.after;
+      } else {
+        // all CellSpans containing the center row are stored in this node
+        return NO_SPAN;
+      }
+    }
+    return NO_SPAN;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return spans[(int) spanIndex];
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return spans[(int) spanIndex].getStartRow();
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return spans[(int) spanIndex].getStartColumn();
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return spans[(int) spanIndex].getEndRow();
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return spans[(int) spanIndex].getEndColumn();
+  }
+
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    var result = new ArrayList<CellSpan>();
+    collectIntersecting(root, cellSpan, result);
+    return result;
+  }
+
+  private void collectIntersecting(Node node, CellSpan cellSpan, List<CellSpan> result) {
+    while (node != null) {
+      for (int i = node.findFirstEndingAtOrAfter(cellSpan.getStartColumn());
+           i < node.to && spans[i].getStartColumn() <= cellSpan.getEndColumn();
+           i++) {
+        if (spans[i].getStartRow() <= cellSpan.getEndRow() &&
+            spans[i].getEndRow() >= cellSpan.getStartRow()) {
+          result.add(spans[i]);
+        }
+      }
+      var searchBefore = cellSpan.getStartRow() < node.center;
+      var searchAfter = cellSpan.getEndRow() > node.center;
+      if (searchBefore && searchAfter) {
+        collectIntersecting(node.before, cellSpan, result);
+        node = node.after;
+      } else if (searchBefore) {
+        node = node.before;
+      } else if (searchAfter) {
+        node = node.after;
+      } else {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    for (int cellSpanColumn : cellSpanColumns) {
+      if (cellSpanColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private class Node {
+    private final int center;
+    private final int from;
+    private final int to;
+    private final Node before;
+    private final Node after;
+
+    private Node(int center, int from, int to, Node before, Node after) {
+      this.center = center;
+      this.from = from;
+      this.to = to;
+      this.before = before;
+      this.after = after;
+    }
+
+    /**
+     * Returns the index of the CellSpan in this node spanning column or -1.
+     */
+    private int findColumn(int column) {
+      var i = findFirstEndingAtOrAfter(column);
+      if (i < to && spans[i].getStartColumn() <= column) {
+        return i;
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the index of the first CellSpan in this node with an end column
+     * greater or equal to column, or <code>to</code> if there is none.
+     * The CellSpans of a node are disjoint in their columns, so the end columns
+     * are sorted as well.
+     */
+    private int findFirstEndingAtOrAfter(int column) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (spans[mid].getEndColumn() < column) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * An ISpanTableModel which loads its CellSpans in blocks of rows on demand.
+ * <p>
+ * The rows are divided into blocks of <code>blockSize</code> rows. When a cell of a
+ * block is requested for the first time, the {@link SpanBlockLoader} is asked to load
+ * the CellSpans intersecting the block. Until they arrive the cells of the block are
+ * reported as not contained in any CellSpan, so the table is painted without blocking
+ * the event dispatch thread. When a block arrives the listeners are notified about its
+ * rows, so {@link SpanTable} repaints just these rows.
+ * <p>
+ * A block whose load failed is not requested again, its cells stay without CellSpans
+ * until {@link #retryFailedBlocks()} or {@link #clear()} is called. The failure is
+ * passed to {@link SpanBlockLoader#loadFailed(int, int, Throwable)} and can be queried
+ * with {@link #getLoadFailure(int)}.
+ * <p>
+ * At most <code>maxBlocks</code> blocks are kept, the least recently used block is
+ * discarded first. The limit should be large enough to hold the visible rows, otherwise
+ * the blocks are loaded again on every paint.
+ * <p>
+ * Every loaded block is stored as a {@link PackedSpanTableModel}. The index returned by
+ * {@link #findSpanIndex(int, int)} combines the number of the block and the position
+ * in the block.
+ * <p>
+ * Like Swing models this class is not thread safe and should only be used on the
+ * event dispatch thread. The loaded blocks are handed over to the event dispatch
+ * thread, regardless of the thread completing the load.
+ */
+public class LazySpanTableModel extends AbstractSpanTableModel {
+  private final SpanBlockLoader loader;
+  private final int blockSize;
+  private final int maxBlocks;
+  private final int[] cellSpanColumns;
+  private final Map<Integer, Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+  private final Set<Integer> pendingBlocks = new HashSet<>();
+  private final Map<Integer, Throwable> failedBlocks = new HashMap<>();
+  /** Incremented by {@link #clear()} to ignore loads started before. */
+  private int generation;
+  /** The last block found, which is looked up without boxing its number. */
+  private int lastBlockNumber = -1;
+  private Block lastBlock;
+
+  /**
+   * Creates an instance of LazySpanTableModel without loaded blocks.
+   * @param loader Loads the CellSpans of a block.
+   * @param blockSize The number of rows of a block.
+   * @param maxBlocks The maximum number of loaded blocks.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   */
+  public LazySpanTableModel(SpanBlockLoader loader, int blockSize, int maxBlocks, int[] cellSpanColumns) {
+    if (blockSize < 1 || maxBlocks < 1) {
+      throw new IllegalArgumentException("blockSize and maxBlocks must be positive");
+    }
+    this.loader = loader;
+    this.blockSize = blockSize;
+    this.maxBlocks = maxBlocks;
+    this.cellSpanColumns = cellSpanColumns;
+  }
+
+  /**
+   * @param row An index specifying the row.
+   * @return True if the CellSpans of the block containing the row are loaded.
+   */
+  public boolean isLoaded(int row) {
+    return row >= 0 && blocks.containsKey(row / blockSize);
+  }
+
+  /**
+   * @param row An index specifying the row.
+   * @return The error of the last load of the block containing the row, if it failed.
+   */
+  public Optional<Throwable> getLoadFailure(int row) {
+    if (row < 0) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(failedBlocks.get(row / blockSize));
+  }
+
+  /**
+   * Forgets all failed loads, so the blocks are loaded again when they are requested.
+   */
+  public void retryFailedBlocks() {
+    var failedBlockNumbers = new ArrayList<>(failedBlocks.keySet());
+    failedBlocks.clear();
+    for (var blockNumber : failedBlockNumbers) {
+      var firstRow = blockNumber * blockSize;
+      fireRowsChanged(firstRow, lastRow(firstRow));
+    }
+  }
+
+  /**
+   * Discards all loaded blocks and failed loads and ignores all pending loads, e.g. after
+   * the CellSpans of the underlying data changed. The blocks are loaded again when they
+   * are requested.
+   */
+  public void clear() {
+    generation++;
+    blocks.clear();
+    pendingBlocks.clear();
+    failedBlocks.clear();
+    lastBlockNumber = -1;
+    lastBlock = null;
+    fireAllSpansChanged();
+  }
+
+  /**
+   * Returns the loaded block or null after starting to load it.
+   */
+  private Block getBlock(int blockNumber) {
+    if (blockNumber == lastBlockNumber) {
+      return lastBlock;
+    }
+    var block = blocks.get(blockNumber);
+    if (block == null) {
+      if (!failedBlocks.containsKey(blockNumber)) {
+        load(blockNumber);
+      }
+      return null;
+    }
+    lastBlockNumber = blockNumber;
+    lastBlock = block;
+    return block;
+  }
+
+  private void load(int blockNumber) {
+    if (!pendingBlocks.add(blockNumber)) {
+      return;
+    }
+    var loadGeneration = generation;
+    var firstRow = blockNumber * blockSize;
+    var lastRow = lastRow(firstRow);
+    CompletionStage<List<CellSpan>> stage;
+    try {
+      stage = loader.loadSpans(firstRow, lastRow);
+    } catch (RuntimeException e) {
+      // reported like a failed load, so the block is not requested again on every paint
+      stage = CompletableFuture.failedFuture(e);
+    }
+    stage.whenComplete((spans, error) ->
+        SwingUtilities.invokeLater(() -> blockLoaded(loadGeneration, blockNumber, firstRow, lastRow, spans, error)));
+  }
+
+  private int lastRow(int firstRow) {
+    return (int) Math.min((long) firstRow + blockSize - 1, Integer.MAX_VALUE);
+  }
+
+  private void blockLoaded(int loadGeneration, int blockNumber, int firstRow, int lastRow, List<CellSpan> spans, Throwable error) {
+    if (loadGeneration != generation) {
+      return;
+    }
+    pendingBlocks.remove(blockNumber);
+    if (error != null) {
+      if (error instanceof CompletionException && error.getCause() != null) {
+        error = error.getCause();
+      }
+      failedBlocks.put(blockNumber, error);
+      loader.loadFailed(firstRow, lastRow, error);
+      return;
+    }
+    var block = new Block(new PackedSpanTableModel(spans, cellSpanColumns), firstRow, lastRow);
+    for (var span : spans) {
+      block.firstRow = Math.min(block.firstRow, span.getStartRow());
+      block.lastRow = Math.max(block.lastRow, span.getEndRow());
+    }
+    blocks.put(blockNumber, block);
+    var evicted = new ArrayList<Block>();
+    var iterator = blocks.entrySet().iterator();
+    while (blocks.size() > maxBlocks) {
+      var eldest = iterator.next();
+      if (eldest.getKey() == lastBlockNumber) {
+        lastBlockNumber = -1;
+        lastBlock = null;
+      }
+      evicted.add(eldest.getValue());
+      iterator.remove();
+    }
+    fireRowsChanged(block.firstRow, block.lastRow);
+    for (var evictedBlock : evicted) {
+      fireRowsChanged(evictedBlock.firstRow, evictedBlock.lastRow);
+    }
+  }
+
+  private void fireRowsChanged(int firstRow, int lastRow) {
+    if (cellSpanColumns.length > 0) {
+      fireSpansChanged(CellSpan.fromStartEnd(
+          firstRow,
+          Arrays.stream(cellSpanColumns).min().orElseThrow(),
+          lastRow,
+          Arrays.stream(cellSpanColumns).max().orElseThrow()));
+    }
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(getCellSpan(spanIndex));
+  }
+
+  /**
+   * Returns {@link #NO_SPAN} as long as the block containing the row is not loaded.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    if (row < 0 || !containsSpans(column)) {
+      return NO_SPAN;
+    }
+    var blockNumber = row / blockSize;
+    var block = getBlock(blockNumber);
+    if (block == null) {
+      return NO_SPAN;
+    }
+    var spanIndex = block.spans.findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return NO_SPAN;
+    }
+    return ((long) blockNumber << 32) | spanIndex;
+  }
+
+  private PackedSpanTableModel getSpans(long spanIndex) {
+    var block = getBlock((int) (spanIndex >>> 32));
+    if (block == null) {
+      throw new IllegalStateException("The block of the CellSpan was discarded");
+    }
+    return block.spans;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return getSpans(spanIndex).getCellSpan((int) spanIndex);
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return getSpans(spanIndex).getSpanStartRow((int) spanIndex);
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return getSpans(spanIndex).getSpanStartColumn((int) spanIndex);
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return getSpans(spanIndex).getSpanEndRow((int) spanIndex);
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return getSpans(spanIndex).getSpanEndColumn((int) spanIndex);
+  }
+
+  /**
+   * Only returns the CellSpans of loaded blocks and starts loading the other blocks.
+   */
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    // CellSpans reaching over the border of a block are contained in both blocks
+    var result = new LinkedHashSet<CellSpan>();
+    var firstBlock = Math.max(cellSpan.getStartRow(), 0) / blockSize;
+    var lastBlock = cellSpan.getEndRow() / blockSize;
+    for (int blockNumber = firstBlock; blockNumber <= lastBlock; blockNumber++) {
+      var block = getBlock(blockNumber);
+      if (block != null) {
+        result.addAll(block.spans.getIntersectingCellSpans(cellSpan));
+      }
+    }
+    return new ArrayList<>(result);
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    for (int cellSpanColumn : cellSpanColumns) {
+      if (cellSpanColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Block {
+    private final PackedSpanTableModel spans;
+    /** The rows of the block and its CellSpans. */
+    private int firstRow;
+    private int lastRow;
+
+    private Block(PackedSpanTableModel spans, int firstRow, int lastRow) {
+      this.spans = spans;
+      this.firstRow = firstRow;
+      this.lastRow = lastRow;
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package net.disy.oss.spantable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An ISpanTableModel which reads its CellSpans from a memory-mapped file written by
+ * {@link #write(List, int[], Path)}.
+ * <p>
+ * The file contains the arrays of a {@link PackedSpanTableModel} as big-endian ints,
+ * preceded by a header of {@value #HEADER_INTS} ints: a magic number, the version of the
+ * format and the length of each array. {@link #open(Path)} maps the file read-only and
+ * only checks the header, so opening takes constant time regardless of the number of
+ * CellSpans. The queries read the mapped ints directly, the operating system loads the
+ * pages on first access and shares them between all processes mapping the same file.
+ * <p>
+ * A file may hold at most 2 GB, which are more than 50 million CellSpans spanning a
+ * single column. The mapping is released when the model is garbage collected.
+ * <p>
+ * The model is immutable as long as the file is not modified, so it can be used from
+ * any thread. Files must not be overwritten while they are mapped, write a new file and
+ * open it instead.
+ */
+public class MappedSpanTableModel implements ISpanTableModel {
+  /** "SPAN" in ASCII. */
+  private static final int MAGIC = 0x5350414E;
+  private static final int VERSION = 1;
+  private static final int ARRAY_COUNT = 8;
+  static final int HEADER_INTS = 2 + ARRAY_COUNT;
+
+  private final IntBuffer ints;
+  private final int[] cellSpanColumns;
+  /** The positions of the arrays of {@link PackedSpanTableModel} in ints. */
+  private final int startRows;
+  private final int startColumns;
+  private final int endRows;
+  private final int endColumns;
+  private final int columnOffsets;
+  private final int columnStartRows;
+  private final int columnSpans;
+  private final int columnCount;
+
+  /**
+   * Creates an instance of MappedSpanTableModel reading the given buffer.
+   * @param buffer A buffer holding the content of a file written by {@link #write(List, int[], Path)}.
+   * @throws IOException If the buffer does not contain a span index of a supported version.
+   */
+  MappedSpanTableModel(ByteBuffer buffer) throws IOException {
+    ints = buffer.asIntBuffer();
+    if (ints.capacity() < HEADER_INTS || ints.get(0) != MAGIC) {
+      throw new IOException("Not a span index");
+    }
+    if (ints.get(1) != VERSION) {
+      throw new IOException("Unsupported span index version " + ints.get(1));
+    }
+    var offsets = new int[ARRAY_COUNT + 1];
+    offsets[0] = HEADER_INTS;
+    for (int i = 0; i < ARRAY_COUNT; i++) {
+      var length = ints.get(2 + i);
+      if (length < 0 || (long) offsets[i] + length > ints.capacity()) {
+        throw new IOException("Truncated span index");
+      }
+      offsets[i + 1] = offsets[i] + length;
+    }
+    var spanCount = offsets[2] - offsets[1];
+    if (offsets[3] - offsets[2] != spanCount || offsets[4] - offsets[3] != spanCount ||
+        offsets[5] - offsets[4] != spanCount || offsets[6] == offsets[5] ||
+        offsets[8] - offsets[7] != offsets[7] - offsets[6]) {
+      throw new IOException("Corrupt span index");
+    }
+    cellSpanColumns = new int[offsets[1] - offsets[0]];
+    for (int i = 0; i < cellSpanColumns.length; i++) {
+      cellSpanColumns[i] = ints.get(offsets[0] + i);
+    }
+    startRows = offsets[1];
+    startColumns = offsets[2];
+    endRows = offsets[3];
+    endColumns = offsets[4];
+    columnOffsets = offsets[5];
+    columnStartRows = offsets[6];
+    columnSpans = offsets[7];
+    columnCount = offsets[6] - offsets[5] - 1;
+  }
+
+  /**
+   * Maps the given file read-only.
+   * @param file A file written by {@link #write(List, int[], Path)}.
+   * @return A model reading the CellSpans from the file.
+   * @throws IOException If the file cannot be mapped or contains no span index of a supported version.
+   */
+  public static MappedSpanTableModel open(Path file) throws IOException {
+    ByteBuffer buffer;
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return new MappedSpanTableModel(buffer);
+    } catch (IOException e) {
+      throw new IOException(e.getMessage() + ": " + file, e);
+    }
+  }
+
+  /**
+   * Writes a span index for the given CellSpans, which can be opened with {@link #open(Path)}.
+   * The CellSpans are assumed to not intersect each other, see
+   * {@link SpanTableModelBuilder#findConflicts(List)}.
+   * @param spans A List of not intersecting CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   * @param file The file to write, an existing file is replaced.
+   * @throws IOException If writing fails or the index would exceed 2 GB.
+   */
+  public static void write(List<CellSpan> spans, int[] cellSpanColumns, Path file) throws IOException {
+    var arrays = new PackedSpanTableModel(spans, cellSpanColumns).getArrays();
+    long size = HEADER_INTS;
+    for (var array : arrays) {
+      size += array.length;
+    }
+    if (size * Integer.BYTES > Integer.MAX_VALUE) {
+      throw new IOException("The span index exceeds 2 GB");
+    }
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      for (var array : arrays) {
+        out.writeInt(array.length);
+      }
+      for (var array : arrays) {
+        for (var value : array) {
+          out.writeInt(value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(getCellSpan(spanIndex));
+  }
+
+  /**
+   * The returned index is the position of the CellSpan in the file like in
+   * {@link PackedSpanTableModel}.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    if (column < 0 || column >= columnCount) {
+      return NO_SPAN;
+    }
+    var i = findLastStartingAtOrBefore(column, row);
+    if (i < 0) {
+      return NO_SPAN;
+    }
+    var span = ints.get(columnSpans + i);
+    if (ints.get(endRows + span) < row) {
+      return NO_SPAN;
+    }
+    return span;
+  }
+
+  /**
+   * Returns the position in <code>columnStartRows</code> of the last CellSpan in column
+   * starting at or before row, or -1 if there is none.
+   */
+  private int findLastStartingAtOrBefore(int column, int row) {
+    int low = ints.get(columnOffsets + column);
+    int high = ints.get(columnOffsets + column + 1);
+    var from = low;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ints.get(columnStartRows + mid) <= row) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low > from ? low - 1 : -1;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return CellSpan.fromStartEnd(
+        getSpanStartRow(spanIndex), getSpanStartColumn(spanIndex),
+        getSpanEndRow(spanIndex), getSpanEndColumn(spanIndex));
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return ints.get(startRows + (int) spanIndex);
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return ints.get(startColumns + (int) spanIndex);
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return ints.get(endRows + (int) spanIndex);
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return ints.get(endColumns + (int) spanIndex);
+  }
+
+  /**
+   * A CellSpan spanning multiple of the requested columns is only returned once.
+   */
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    var result = new ArrayList<CellSpan>();
+    var firstColumn = Math.max(cellSpan.getStartColumn(), 0);
+    var lastColumn = Math.min(cellSpan.getEndColumn(), columnCount - 1);
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      var i = findLastStartingAtOrBefore(column, cellSpan.getStartRow());
+      if (i < 0 || getSpanEndRow(ints.get(columnSpans + i)) < cellSpan.getStartRow()) {
+        i++;
+      }
+      var end = ints.get(columnOffsets + column + 1);
+      i = Math.max(i, ints.get(columnOffsets + column));
+      for (; i < end && ints.get(columnStartRows + i) <= cellSpan.getEndRow(); i++) {
+        var span = ints.get(columnSpans + i);
+        // only add the CellSpan in the first requested column it spans
+        if (column == Math.max(getSpanStartColumn(span), firstColumn)) {
+          result.add(getCellSpan(span));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    for (int cellSpanColumn : cellSpanColumns) {
+      if (cellSpanColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,221 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * An ISpanTableModel whose CellSpans can be added and removed after construction.
+ * <p>
+ * For every column the CellSpans are kept in a <code>TreeMap</code> keyed by their
+ * start row. Adding or removing a CellSpan spanning w columns takes O(w * log n),
+ * so there is no need to rebuild the model when a few CellSpans change. Every change
+ * notifies the {@link SpanModelListener}s with the area of the affected cells, which
+ * allows {@link SpanTable} to repaint only this area.
+ * <p>
+ * Like Swing models this class is not thread safe and should only be used on the
+ * event dispatch thread.
+ */
+public class MutableSpanTableModel extends AbstractSpanTableModel {
+  private final int[] cellSpanColumns;
+  private final Map<Integer, TreeMap<Integer, CellSpan>> columnIndexedCellSpans = new HashMap<>();
+
+  /**
+   * Creates an instance of MutableSpanTableModel without CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   */
+  public MutableSpanTableModel(int[] cellSpanColumns) {
+    this.cellSpanColumns = cellSpanColumns;
+  }
+
+  /**
+   * Creates an instance of MutableSpanTableModel.
+   * @param spans A Collection of not intersecting CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   * @throws IllegalArgumentException If two of the CellSpans intersect.
+   */
+  public MutableSpanTableModel(Collection<CellSpan> spans, int[] cellSpanColumns) {
+    this(cellSpanColumns);
+    for (var span : spans) {
+      checkNotIntersecting(span);
+      insert(span);
+    }
+  }
+
+  /**
+   * Adds a CellSpan and notifies the listeners.
+   * @param span The CellSpan to add.
+   * @throws IllegalArgumentException If the CellSpan intersects a CellSpan of this model.
+   */
+  public void addSpan(CellSpan span) {
+    checkNotIntersecting(span);
+    insert(span);
+    fireSpansChanged(span);
+  }
+
+  /**
+   * Removes a CellSpan and notifies the listeners if the model contained it.
+   * @param span The CellSpan to remove.
+   * @return True if the CellSpan was removed.
+   */
+  public boolean removeSpan(CellSpan span) {
+    if (!delete(span)) {
+      return false;
+    }
+    fireSpansChanged(span);
+    return true;
+  }
+
+  /**
+   * Removes all CellSpans intersecting one of the given CellSpans and adds the given
+   * CellSpans. This can be used to merge cells, which are already part of CellSpans.
+   * The listeners are notified once with the area containing all removed and added
+   * CellSpans.
+   * @param spans The CellSpans to add. They must not intersect each other.
+   * @throws IllegalArgumentException If two of the given CellSpans intersect.
+   */
+  public void replaceSpans(Collection<CellSpan> spans) {
+    if (spans.isEmpty()) {
+      return;
+    }
+    var added = new ArrayList<CellSpan>(spans.size());
+    for (var span : spans) {
+      for (var other : added) {
+        if (span.intersects(other)) {
+          throw new IllegalArgumentException(span + " intersects " + other);
+        }
+      }
+      added.add(span);
+    }
+    int startRow = Integer.MAX_VALUE;
+    int startColumn = Integer.MAX_VALUE;
+    int endRow = Integer.MIN_VALUE;
+    int endColumn = Integer.MIN_VALUE;
+    var changed = new ArrayList<CellSpan>();
+    for (var span : added) {
+      changed.addAll(getIntersectingCellSpans(span));
+      changed.add(span);
+    }
+    for (var span : changed) {
+      startRow = Math.min(startRow, span.getStartRow());
+      startColumn = Math.min(startColumn, span.getStartColumn());
+      endRow = Math.max(endRow, span.getEndRow());
+      endColumn = Math.max(endColumn, span.getEndColumn());
+      delete(span);
+    }
+    for (var span : added) {
+      insert(span);
+    }
+    fireSpansChanged(CellSpan.fromStartEnd(startRow, startColumn, endRow, endColumn));
+  }
+
+  /**
+   * Removes all CellSpans and notifies the listeners.
+   */
+  public void clear() {
+    columnIndexedCellSpans.clear();
+    fireAllSpansChanged();
+  }
+
+  private void checkNotIntersecting(CellSpan span) {
+    var intersecting = getIntersectingCellSpans(span);
+    if (!intersecting.isEmpty()) {
+      throw new IllegalArgumentException(span + " intersects " + intersecting.get(0));
+    }
+  }
+
+  private void insert(CellSpan span) {
+    for (var column : span.getSpannedColumns()) {
+      columnIndexedCellSpans.computeIfAbsent(column, c -> new TreeMap<>()).put(span.getStartRow(), span);
+    }
+  }
+
+  private boolean delete(CellSpan span) {
+    var spansInColumn = columnIndexedCellSpans.get(span.getStartColumn());
+    if (spansInColumn == null || !span.equals(spansInColumn.get(span.getStartRow()))) {
+      return false;
+    }
+    for (var column : span.getSpannedColumns()) {
+      spansInColumn = columnIndexedCellSpans.get(column);
+      spansInColumn.remove(span.getStartRow());
+      if (spansInColumn.isEmpty()) {
+        columnIndexedCellSpans.remove(column);
+      }
+    }
+    return true;
+  }
+
+  private CellSpan find(int row, int column) {
+    var spansInColumn = columnIndexedCellSpans.get(column);
+    if (spansInColumn == null) {
+      return null;
+    }
+    var candidate = spansInColumn.floorEntry(row);
+    if (candidate == null || candidate.getValue().getEndRow() < row) {
+      return null;
+    }
+    return candidate.getValue();
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    return Optional.ofNullable(find(row, column));
+  }
+
+  /**
+   * The returned index encodes the upper left cell of the CellSpan like the default implementation.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    var span = find(row, column);
+    if (span == null) {
+      return NO_SPAN;
+    }
+    return ((long) span.getStartRow() << 32) | span.getStartColumn();
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return columnIndexedCellSpans.get(getSpanStartColumn(spanIndex)).get(getSpanStartRow(spanIndex));
+  }
+
+  /**
+   * A CellSpan spanning multiple of the requested columns is only returned once.
+   */
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    var result = new ArrayList<CellSpan>();
+    for (var column : cellSpan.getSpannedColumns()) {
+      var spansInColumn = columnIndexedCellSpans.get(column);
+      if (spansInColumn == null) {
+        continue;
+      }
+      var from = spansInColumn.floorKey(cellSpan.getStartRow());
+      if (from == null) {
+        from = cellSpan.getStartRow();
+      }
+      for (var span : spansInColumn.subMap(from, true, cellSpan.getEndRow(), true).values()) {
+        // only add the CellSpan in the first requested column it spans
+        if (span.getEndRow() >= cellSpan.getStartRow() &&
+            column == Math.max(span.getStartColumn(), cellSpan.getStartColumn())) {
+          result.add(span);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    for (int cellSpanColumn : cellSpanColumns) {
+      if (cellSpanColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
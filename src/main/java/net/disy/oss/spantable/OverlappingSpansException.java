@@ -0,0 +1,25 @@
+package net.disy.oss.spantable;
+
+import java.util.List;
+
+/**
+ * Thrown by {@link SpanTableModelBuilder} if CellSpans intersect each other.
+ */
+public class OverlappingSpansException extends IllegalArgumentException {
+  private final List<SpanConflict> conflicts;
+
+  /**
+   * @param conflicts All pairs of intersecting CellSpans.
+   */
+  public OverlappingSpansException(List<SpanConflict> conflicts) {
+    super(conflicts.size() + " pairs of CellSpans intersect, e.g. " + conflicts.get(0));
+    this.conflicts = List.copyOf(conflicts);
+  }
+
+  /**
+   * @return All pairs of intersecting CellSpans.
+   */
+  public List<SpanConflict> getConflicts() {
+    return conflicts;
+  }
+}
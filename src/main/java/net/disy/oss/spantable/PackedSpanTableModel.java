@@ -0,0 +1,201 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This class stores the CellSpans as a structure of primitive int arrays.
+ * The bounds of the CellSpans are kept in one array per coordinate and a
+ * CellSpan is identified by its position in these arrays.
+ * <p>
+ * For every column there is a contiguous part of <code>columnStartRows</code> and
+ * <code>columnSpans</code> holding the start rows and positions of the CellSpans
+ * in the column, sorted by start row. A CellSpan spanning multiple columns costs
+ * two ints for each spanned column. A lookup is a binary search on an int array.
+ * <p>
+ * CellSpan objects are only created when they are requested by
+ * {@link #getCellSpanContaining(int, int)} or {@link #getIntersectingCellSpans(CellSpan)}.
+ */
+public class PackedSpanTableModel implements ISpanTableModel {
+  private final int[] cellSpanColumns;
+  private final int[] startRows;
+  private final int[] startColumns;
+  private final int[] endRows;
+  private final int[] endColumns;
+  /** The CellSpans of column c are stored from columnOffsets[c] to columnOffsets[c + 1]. */
+  private final int[] columnOffsets;
+  private final int[] columnStartRows;
+  private final int[] columnSpans;
+
+  /**
+   * Creates an instance of PackedSpanTableModel.
+   * The CellSpans are assumed to
+   * not intersect each other. This has to be checked before construction by the caller.
+   * @param spans A List of not intersecting CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   */
+  public PackedSpanTableModel(List<CellSpan> spans, int[] cellSpanColumns) {
+    this.cellSpanColumns = cellSpanColumns;
+    var count = spans.size();
+    startRows = new int[count];
+    startColumns = new int[count];
+    endRows = new int[count];
+    endColumns = new int[count];
+    var columnCount = 0;
+    for (int i = 0; i < count; i++) {
+      var span = spans.get(i);
+      startRows[i] = span.getStartRow();
+      startColumns[i] = span.getStartColumn();
+      endRows[i] = span.getEndRow();
+      endColumns[i] = span.getEndColumn();
+      columnCount = Math.max(columnCount, endColumns[i] + 1);
+    }
+
+    columnOffsets = new int[columnCount + 1];
+    for (int i = 0; i < count; i++) {
+      for (int column = startColumns[i]; column <= endColumns[i]; column++) {
+        columnOffsets[column + 1]++;
+      }
+    }
+    for (int column = 0; column < columnCount; column++) {
+      columnOffsets[column + 1] += columnOffsets[column];
+    }
+
+    // sort the CellSpans of each column by start row, using the position as tie breaker
+    var keys = new long[columnOffsets[columnCount]];
+    var next = Arrays.copyOf(columnOffsets, columnCount);
+    for (int i = 0; i < count; i++) {
+      for (int column = startColumns[i]; column <= endColumns[i]; column++) {
+        keys[next[column]++] = ((long) startRows[i] << 32) | i;
+      }
+    }
+    for (int column = 0; column < columnCount; column++) {
+      Arrays.sort(keys, columnOffsets[column], columnOffsets[column + 1]);
+    }
+    columnStartRows = new int[keys.length];
+    columnSpans = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      columnStartRows[i] = (int) (keys[i] >>> 32);
+      columnSpans[i] = (int) keys[i];
+    }
+  }
+
+  /**
+   * Returns the arrays of this model in the order of the file format of
+   * {@link MappedSpanTableModel}. The arrays are not copied.
+   */
+  int[][] getArrays() {
+    return new int[][]{
+        cellSpanColumns, startRows, startColumns, endRows, endColumns, columnOffsets, columnStartRows, columnSpans};
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(getCellSpan(spanIndex));
+  }
+
+  /**
+   * The returned index is the position of the CellSpan in the arrays of this model.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
+    if (column < 0 || column >= columnOffsets.length - 1) {
+      return NO_SPAN;
+    }
+    var i = findLastStartingAtOrBefore(column, row);
+    if (i < 0) {
+      return NO_SPAN;
+    }
+    var span = columnSpans[i];
+    if (endRows[span] < row) {
+      return NO_SPAN;
+    }
+    return span;
+  }
+
+  /**
+   * Returns the position in <code>columnStartRows</code> of the last CellSpan in column
+   * starting at or before row, or -1 if there is none.
+   */
+  private int findLastStartingAtOrBefore(int column, int row) {
+    int low = columnOffsets[column];
+    int high = columnOffsets[column + 1];
+    var from = low;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (columnStartRows[mid] <= row) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low > from ? low - 1 : -1;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    var i = (int) spanIndex;
+    return CellSpan.fromStartEnd(startRows[i], startColumns[i], endRows[i], endColumns[i]);
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return startRows[(int) spanIndex];
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return startColumns[(int) spanIndex];
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return endRows[(int) spanIndex];
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return endColumns[(int) spanIndex];
+  }
+
+  /**
+   * A CellSpan spanning multiple of the requested columns is only returned once.
+   */
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    var result = new ArrayList<CellSpan>();
+    var firstColumn = Math.max(cellSpan.getStartColumn(), 0);
+    var lastColumn = Math.min(cellSpan.getEndColumn(), columnOffsets.length - 2);
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      var i = findLastStartingAtOrBefore(column, cellSpan.getStartRow());
+      if (i < 0 || endRows[columnSpans[i]] < cellSpan.getStartRow()) {
+        i++;
+      }
+      i = Math.max(i, columnOffsets[column]);
+      for (; i < columnOffsets[column + 1] && columnStartRows[i] <= cellSpan.getEndRow(); i++) {
+        var span = columnSpans[i];
+        // only add the CellSpan in the first requested column it spans
+        if (column == Math.max(startColumns[span], firstColumn)) {
+          result.add(getCellSpan(span));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    for (int cellSpanColumn : cellSpanColumns) {
+      if (cellSpanColumn == column) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,152 @@
+package net.disy.oss.spantable;
+
+import java.awt.Rectangle;
+
+import javax.swing.JTable;
+
+/**
+ * The positions of the rows and columns painted in one paint call.
+ * <p>
+ * The offsets are computed once per paint using prefix sums of the row heights and
+ * column widths, so the rectangles of cells and CellSpans are found by array lookups
+ * instead of walking the row model of the table for every cell. The arrays are reused
+ * between paints. The results are the same as those of {@link JTable#getCellRect}.
+ */
+final class PaintGeometry {
+  private int firstRow;
+  private int lastRow;
+  private int firstColumn;
+  private int lastColumn;
+  private int rowMargin;
+  private int columnMargin;
+  /** rowOffsets[i] is the top of row firstRow + i, the last entry the bottom of lastRow. */
+  private int[] rowOffsets = new int[0];
+  private int[] columnX = new int[0];
+  private int[] columnWidths = new int[0];
+
+  /**
+   * Computes the positions of the given rows and columns of the table.
+   */
+  void update(JTable table, int rMin, int rMax, int cMin, int cMax) {
+    firstRow = rMin;
+    lastRow = rMax;
+    firstColumn = cMin;
+    lastColumn = cMax;
+    rowMargin = table.getRowMargin();
+    columnMargin = table.getColumnModel().getColumnMargin();
+
+    int rowCount = rMax - rMin + 1;
+    if (rowOffsets.length < rowCount + 1) {
+      rowOffsets = new int[rowCount + 1];
+    }
+    Rectangle first = table.getCellRect(rMin, cMin, true);
+    rowOffsets[0] = first.y;
+    for (int i = 0; i < rowCount; i++) {
+      rowOffsets[i + 1] = rowOffsets[i] + table.getRowHeight(rMin + i);
+    }
+
+    int columnCount = cMax - cMin + 1;
+    if (columnX.length < columnCount) {
+      columnX = new int[columnCount];
+      columnWidths = new int[columnCount];
+    }
+    var columnModel = table.getColumnModel();
+    var ltr = table.getComponentOrientation().isLeftToRight();
+    int x = first.x;
+    for (int i = 0; i < columnCount; i++) {
+      var width = columnModel.getColumn(cMin + i).getWidth();
+      columnWidths[i] = width;
+      if (ltr) {
+        columnX[i] = x;
+        x += width;
+      } else {
+        // first.x is the left edge of the first column, the following columns are on its left
+        if (i > 0) {
+          x -= width;
+        }
+        columnX[i] = x;
+      }
+    }
+  }
+
+  int getFirstRow() {
+    return firstRow;
+  }
+
+  int getLastRow() {
+    return lastRow;
+  }
+
+  int getFirstColumn() {
+    return firstColumn;
+  }
+
+  int getLastColumn() {
+    return lastColumn;
+  }
+
+  /**
+   * @return The top of the cells in the row, without spacing.
+   */
+  int getCellY(int row) {
+    return rowOffsets[row - firstRow] + rowMargin / 2;
+  }
+
+  /**
+   * @return The height of the cells in the row, without spacing.
+   */
+  int getCellHeight(int row) {
+    return rowOffsets[row - firstRow + 1] - rowOffsets[row - firstRow] - rowMargin;
+  }
+
+  /**
+   * @return The left edge of the cells in the column, without spacing.
+   */
+  int getCellX(int column) {
+    return columnX[column - firstColumn] + columnMargin / 2;
+  }
+
+  /**
+   * @return The width of the cells in the column, without spacing.
+   */
+  int getCellWidth(int column) {
+    return columnWidths[column - firstColumn] - columnMargin;
+  }
+
+  /**
+   * Stores the bounds of the cell without spacing in result, like
+   * <code>table.getCellRect(row, column, false)</code>.
+   * @return result
+   */
+  Rectangle getCellRect(int row, int column, Rectangle result) {
+    result.setBounds(getCellX(column), getCellY(row), getCellWidth(column), getCellHeight(row));
+    return result;
+  }
+
+  /**
+   * Stores the bounds of the part of the area within the painted rows and columns in
+   * result, without spacing.
+   * @return result
+   */
+  Rectangle getAreaRect(int startRow, int startColumn, int endRow, int endColumn, Rectangle result) {
+    startRow = Math.max(startRow, firstRow);
+    endRow = Math.min(endRow, lastRow);
+    startColumn = Math.max(startColumn, firstColumn);
+    endColumn = Math.min(endColumn, lastColumn);
+    int y = getCellY(startRow);
+    int height = getCellY(endRow) + getCellHeight(endRow) - y;
+    int startX = getCellX(startColumn);
+    int endX = getCellX(endColumn);
+    int x = Math.min(startX, endX);
+    int width = Math.max(startX + getCellWidth(startColumn), endX + getCellWidth(endColumn)) - x;
+    result.setBounds(x, y, width, height);
+    return result;
+  }
+
+  /**
+   * @return True if the cell lies within the painted rows and columns.
+   */
+  boolean isPainted(int row, int column) {
+    return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+  }
+}
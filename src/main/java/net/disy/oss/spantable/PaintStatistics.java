@@ -0,0 +1,119 @@
+package net.disy.oss.spantable;
+
+/**
+ * The work done by {@link SpanTableUi} to paint one frame, i.e. in one call of
+ * <code>paint</code>. The counters are only collected if a {@link SpanTableMetrics}
+ * is set.
+ */
+public final class PaintStatistics {
+  long paintNanos;
+  long dirtyArea;
+  int paintedCells;
+  int paintedSpans;
+  int spanQueries;
+  int rendererCalls;
+  int gridLines;
+  int renderCacheHits;
+  int renderCacheMisses;
+  int tileHits;
+  int renderedTiles;
+
+  PaintStatistics() {
+  }
+
+  /**
+   * @return The time spent in <code>paint</code> in nanoseconds.
+   */
+  public long getPaintNanos() {
+    return paintNanos;
+  }
+
+  /**
+   * @return The area of the clip of the frame in pixels.
+   */
+  public long getDirtyArea() {
+    return dirtyArea;
+  }
+
+  /**
+   * @return The number of painted cells which are not part of a CellSpan.
+   */
+  public int getPaintedCells() {
+    return paintedCells;
+  }
+
+  /**
+   * @return The number of painted CellSpans.
+   */
+  public int getPaintedSpans() {
+    return paintedSpans;
+  }
+
+  /**
+   * @return The number of queries for the CellSpans intersecting the painted area.
+   */
+  public int getSpanQueries() {
+    return spanQueries;
+  }
+
+  /**
+   * @return The number of calls of a TableCellRenderer.
+   */
+  public int getRendererCalls() {
+    return rendererCalls;
+  }
+
+  /**
+   * @return The number of painted runs of grid lines.
+   */
+  public int getGridLines() {
+    return gridLines;
+  }
+
+  /**
+   * @return The number of cells taken from the render cache, see
+   * {@link SpanTableUi#setRenderCacheSize(long)}.
+   */
+  public int getRenderCacheHits() {
+    return renderCacheHits;
+  }
+
+  /**
+   * @return The number of cells rendered into the render cache.
+   */
+  public int getRenderCacheMisses() {
+    return renderCacheMisses;
+  }
+
+  /**
+   * @return The number of tiles copied without rendering them, see
+   * {@link SpanTableUi#setTileCacheSize(int)}.
+   */
+  public int getTileHits() {
+    return tileHits;
+  }
+
+  /**
+   * @return The number of rendered tiles.
+   */
+  public int getRenderedTiles() {
+    return renderedTiles;
+  }
+
+  @Override
+  public String toString() {
+    return "PaintStatistics{" +
+        "paintNanos=" + paintNanos +
+        ", dirtyArea=" + dirtyArea +
+        ", paintedCells=" + paintedCells +
+        ", paintedSpans=" + paintedSpans +
+        ", spanQueries=" + spanQueries +
+        ", rendererCalls=" + rendererCalls +
+        ", gridLines=" + gridLines +
+        ", renderCacheHits=" + renderCacheHits +
+        ", renderCacheMisses=" + renderCacheMisses +
+        ", tileHits=" + tileHits +
+        ", renderedTiles=" + renderedTiles +
+        '}';
+  }
+}
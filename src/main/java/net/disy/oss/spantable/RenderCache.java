@@ -0,0 +1,179 @@
+package net.disy.oss.spantable;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.swing.table.TableCellRenderer;
+
+/**
+ * A least recently used cache of rendered cells, whose size is bounded by the
+ * number of bytes of the stored images.
+ */
+final class RenderCache {
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxBytes;
+  private long bytes;
+
+  /**
+   * @param maxBytes The maximum number of bytes of all stored images.
+   */
+  RenderCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  long getMaxBytes() {
+    return maxBytes;
+  }
+
+  Entry get(Key key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Stores the entry and evicts the least recently used entries exceeding the budget.
+   * Entries larger than the budget are not stored.
+   */
+  void put(Key key, Entry entry) {
+    var size = entry.getBytes();
+    if (size > maxBytes) {
+      return;
+    }
+    var old = entries.put(key, entry);
+    if (old != null) {
+      bytes -= old.getBytes();
+    }
+    bytes += size;
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (bytes > maxBytes) {
+      bytes -= iterator.next().getBytes();
+      iterator.remove();
+    }
+  }
+
+  void clear() {
+    entries.clear();
+    bytes = 0;
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * Everything the rendered image depends on.
+   */
+  static final class Key {
+    private final TableCellRenderer renderer;
+    private final Object value;
+    private final boolean selected;
+    private final boolean focused;
+    private final int startRow;
+    private final int startColumn;
+    private final int endRow;
+    private final int endColumn;
+    private final int width;
+    private final int height;
+    private final double scaleX;
+    private final double scaleY;
+
+    Key(
+        TableCellRenderer renderer,
+        Object value,
+        boolean selected,
+        boolean focused,
+        int startRow,
+        int startColumn,
+        int endRow,
+        int endColumn,
+        int width,
+        int height,
+        double scaleX,
+        double scaleY) {
+      this.renderer = renderer;
+      this.value = value;
+      this.selected = selected;
+      this.focused = focused;
+      this.startRow = startRow;
+      this.startColumn = startColumn;
+      this.endRow = endRow;
+      this.endColumn = endColumn;
+      this.width = width;
+      this.height = height;
+      this.scaleX = scaleX;
+      this.scaleY = scaleY;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      var other = (Key) o;
+      return renderer == other.renderer &&
+          selected == other.selected &&
+          focused == other.focused &&
+          startRow == other.startRow &&
+          startColumn == other.startColumn &&
+          endRow == other.endRow &&
+          endColumn == other.endColumn &&
+          width == other.width &&
+          height == other.height &&
+          scaleX == other.scaleX &&
+          scaleY == other.scaleY &&
+          Objects.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          System.identityHashCode(renderer),
+          value,
+          selected,
+          focused,
+          startRow,
+          startColumn,
+          endRow,
+          endColumn,
+          width,
+          height,
+          scaleX,
+          scaleY);
+    }
+  }
+
+  /**
+   * A rendered cell and the background color of the renderer.
+   */
+  static final class Entry {
+    private final BufferedImage image;
+    private final Color background;
+
+    Entry(BufferedImage image, Color background) {
+      this.image = image;
+      this.background = background;
+    }
+
+    BufferedImage getImage() {
+      return image;
+    }
+
+    Color getBackground() {
+      return background;
+    }
+
+    long getBytes() {
+      return 4L * image.getWidth() * image.getHeight();
+    }
+  }
+}
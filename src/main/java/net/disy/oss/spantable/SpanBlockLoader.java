@@ -0,0 +1,34 @@
+package net.disy.oss.spantable;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Loads the CellSpans of a block of rows for a {@link LazySpanTableModel}.
+ */
+@FunctionalInterface
+public interface SpanBlockLoader {
+  /**
+   * Starts loading all CellSpans which intersect the given rows. CellSpans reaching
+   * out of the block are returned for every block they intersect.
+   * This method is called on the event dispatch thread, so it should only start the
+   * loading, e.g. by submitting a task to an Executor, and return immediately.
+   * @param firstRow The first row of the block.
+   * @param lastRow The last row of the block.
+   * @return A CompletionStage which is completed with the CellSpans of the block.
+   */
+  CompletionStage<List<CellSpan>> loadSpans(int firstRow, int lastRow);
+
+  /**
+   * Called on the event dispatch thread when loading a block failed, either by
+   * completing the CompletionStage exceptionally or by throwing from
+   * {@link #loadSpans(int, int)}. The block is not loaded again until
+   * {@link LazySpanTableModel#retryFailedBlocks()} or {@link LazySpanTableModel#clear()}
+   * is called. Does nothing by default.
+   * @param firstRow The first row of the block.
+   * @param lastRow The last row of the block.
+   * @param error The cause of the failure.
+   */
+  default void loadFailed(int firstRow, int lastRow, Throwable error) {
+  }
+}
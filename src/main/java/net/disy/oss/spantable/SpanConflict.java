@@ -0,0 +1,59 @@
+package net.disy.oss.spantable;
+
+import java.util.Objects;
+
+/**
+ * A pair of intersecting CellSpans, see {@link SpanTableModelBuilder#findConflicts(java.util.List)}.
+ */
+public final class SpanConflict {
+  private final CellSpan first;
+  private final CellSpan second;
+
+  /**
+   * @param first The CellSpan starting first.
+   * @param second The CellSpan intersecting first.
+   */
+  public SpanConflict(CellSpan first, CellSpan second) {
+    this.first = first;
+    this.second = second;
+  }
+
+  /**
+   * @return The CellSpan starting first.
+   */
+  public CellSpan getFirst() {
+    return first;
+  }
+
+  /**
+   * @return The CellSpan intersecting the first CellSpan.
+   */
+  public CellSpan getSecond() {
+    return second;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    var that = (SpanConflict) o;
+    return first.equals(that.first) && second.equals(that.second);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(first, second);
+  }
+
+  @Override
+  public String toString() {
+    return "SpanConflict{" +
+        "first=" + first +
+        ", second=" + second +
+        '}';
+  }
+}
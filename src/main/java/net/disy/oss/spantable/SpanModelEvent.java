@@ -0,0 +1,44 @@
+package net.disy.oss.spantable;
+
+import java.util.EventObject;
+
+/**
+ * Describes a change of the CellSpans of an {@link ISpanTableModel}.
+ * The event only carries the area of cells whose CellSpans might have changed,
+ * which is the area that has to be repainted.
+ */
+public class SpanModelEvent extends EventObject {
+  private final CellSpan area;
+
+  /**
+   * Creates an event for a change affecting all cells.
+   * @param source The model which changed.
+   */
+  public SpanModelEvent(Object source) {
+    this(source, null);
+  }
+
+  /**
+   * @param source The model which changed.
+   * @param area The cells affected by the change or null if all cells are affected.
+   */
+  public SpanModelEvent(Object source, CellSpan area) {
+    super(source);
+    this.area = area;
+  }
+
+  /**
+   * @return The cells affected by the change or null if all cells are affected.
+   */
+  public CellSpan getArea() {
+    return area;
+  }
+
+  @Override
+  public String toString() {
+    return "SpanModelEvent{" +
+        "source=" + source +
+        ", area=" + area +
+        '}';
+  }
+}
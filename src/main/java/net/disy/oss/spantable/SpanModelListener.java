@@ -0,0 +1,14 @@
+package net.disy.oss.spantable;
+
+import java.util.EventListener;
+
+/**
+ * Is notified when the CellSpans of an {@link ISpanTableModel} change.
+ */
+public interface SpanModelListener extends EventListener {
+  /**
+   * Called after CellSpans were added to or removed from the model.
+   * @param e An event describing the cells which are affected by the change.
+   */
+  void spansChanged(SpanModelEvent e);
+}
@@ -0,0 +1,36 @@
+package net.disy.oss.spantable;
+
+import java.util.EventObject;
+
+/**
+ * Describes a change of a {@link SpanSelectionModel}.
+ * The event carries the area of cells whose selection state might have changed,
+ * which is the area that has to be repainted.
+ */
+public class SpanSelectionEvent extends EventObject {
+  private final CellSpan area;
+
+  /**
+   * @param source The model which changed.
+   * @param area The cells affected by the change or null if all cells are affected.
+   */
+  public SpanSelectionEvent(Object source, CellSpan area) {
+    super(source);
+    this.area = area;
+  }
+
+  /**
+   * @return The cells affected by the change or null if all cells are affected.
+   */
+  public CellSpan getArea() {
+    return area;
+  }
+
+  @Override
+  public String toString() {
+    return "SpanSelectionEvent{" +
+        "source=" + source +
+        ", area=" + area +
+        '}';
+  }
+}
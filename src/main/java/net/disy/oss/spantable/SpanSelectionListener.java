@@ -0,0 +1,14 @@
+package net.disy.oss.spantable;
+
+import java.util.EventListener;
+
+/**
+ * Is notified when the selection of a {@link SpanSelectionModel} changes.
+ */
+public interface SpanSelectionListener extends EventListener {
+  /**
+   * Called after cells were selected or deselected.
+   * @param e An event describing the cells which are affected by the change.
+   */
+  void selectionChanged(SpanSelectionEvent e);
+}
@@ -0,0 +1,200 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.EventListenerList;
+
+/**
+ * A selection of cells stored as a set of rectangles, for {@link SpanTable#setSpanSelectionModel}.
+ * <p>
+ * Unlike the selection of a JTable, which is the product of a selection of rows and a
+ * selection of columns, any set of rectangles can be selected. The selected cells are
+ * kept as not intersecting rectangles in a {@link MutableSpanTableModel}, so checking
+ * whether a cell or any cell of an area is selected takes O(w * log n) for an area
+ * spanning w columns and n selected rectangles, regardless of their sizes. Adding or
+ * removing a rectangle splits the intersecting rectangles into at most four parts each.
+ * <p>
+ * Every change notifies the {@link SpanSelectionListener}s once with the changed
+ * rectangle, which is the area to repaint.
+ * <p>
+ * Like Swing models this class is not thread safe and should only be used on the
+ * event dispatch thread.
+ */
+public class SpanSelectionModel {
+  private final MutableSpanTableModel selection = new MutableSpanTableModel(new int[0]);
+  private final EventListenerList listenerList = new EventListenerList();
+  /** The number of selected rectangles. */
+  private int count;
+  /** The last row and column of all rectangles selected since the selection was cleared. */
+  private int endRow = -1;
+  private int endColumn = -1;
+
+  /**
+   * @param row An index specifying the row.
+   * @param column An index specifying the column.
+   * @return True if the cell is selected.
+   */
+  public boolean isCellSelected(int row, int column) {
+    return selection.findSpanIndex(row, column) != ISpanTableModel.NO_SPAN;
+  }
+
+  /**
+   * @param area The cells to check.
+   * @return True if any cell of the area is selected.
+   */
+  public boolean isSelected(CellSpan area) {
+    return !selection.getIntersectingCellSpans(area).isEmpty();
+  }
+
+  /**
+   * @return True if no cell is selected.
+   */
+  public boolean isSelectionEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * @return Not intersecting rectangles containing exactly the selected cells.
+   */
+  public List<CellSpan> getSelectedAreas() {
+    if (count == 0) {
+      return List.of();
+    }
+    return selection.getIntersectingCellSpans(CellSpan.fromStartEnd(0, 0, endRow, endColumn));
+  }
+
+  /**
+   * Selects the cells of the area in addition to the selected cells.
+   * @param area The cells to select.
+   */
+  public void addSelection(CellSpan area) {
+    cut(area);
+    insert(area);
+    fireSelectionChanged(area);
+  }
+
+  /**
+   * Deselects the cells of the area.
+   * @param area The cells to deselect.
+   */
+  public void removeSelection(CellSpan area) {
+    if (cut(area)) {
+      fireSelectionChanged(area);
+    }
+  }
+
+  /**
+   * Replaces the selection with the cells of the area.
+   * @param area The cells to select.
+   */
+  public void setSelection(CellSpan area) {
+    var selected = getSelectedAreas();
+    if (selected.size() == 1 && selected.get(0).equals(area)) {
+      return;
+    }
+    reset();
+    insert(area);
+    // the changed cells are contained in the bounds of the old and the new selection
+    int startRow = area.getStartRow();
+    int startColumn = area.getStartColumn();
+    int endRow = area.getEndRow();
+    int endColumn = area.getEndColumn();
+    for (var span : selected) {
+      startRow = Math.min(startRow, span.getStartRow());
+      startColumn = Math.min(startColumn, span.getStartColumn());
+      endRow = Math.max(endRow, span.getEndRow());
+      endColumn = Math.max(endColumn, span.getEndColumn());
+    }
+    fireSelectionChanged(CellSpan.fromStartEnd(startRow, startColumn, endRow, endColumn));
+  }
+
+  /**
+   * Deselects all cells.
+   */
+  public void clearSelection() {
+    if (count == 0) {
+      return;
+    }
+    reset();
+    fireSelectionChanged(null);
+  }
+
+  private void insert(CellSpan area) {
+    selection.addSpan(area);
+    count++;
+    endRow = Math.max(endRow, area.getEndRow());
+    endColumn = Math.max(endColumn, area.getEndColumn());
+  }
+
+  private void reset() {
+    selection.clear();
+    count = 0;
+    endRow = -1;
+    endColumn = -1;
+  }
+
+  /**
+   * Removes the cells of the area from the selected rectangles.
+   * @return True if any selected cell was removed.
+   */
+  private boolean cut(CellSpan area) {
+    var intersecting = selection.getIntersectingCellSpans(area);
+    for (var span : intersecting) {
+      selection.removeSpan(span);
+      count--;
+      for (var part : subtract(span, area)) {
+        selection.addSpan(part);
+        count++;
+      }
+    }
+    return !intersecting.isEmpty();
+  }
+
+  /**
+   * Returns the parts of span outside of area: the rows above and below area and
+   * the parts left and right of area in the rows of area.
+   */
+  private static List<CellSpan> subtract(CellSpan span, CellSpan area) {
+    var parts = new ArrayList<CellSpan>(4);
+    var startRow = Math.max(span.getStartRow(), area.getStartRow());
+    var endRow = Math.min(span.getEndRow(), area.getEndRow());
+    if (span.getStartRow() < startRow) {
+      parts.add(CellSpan.fromStartEnd(span.getStartRow(), span.getStartColumn(), startRow - 1, span.getEndColumn()));
+    }
+    if (span.getEndRow() > endRow) {
+      parts.add(CellSpan.fromStartEnd(endRow + 1, span.getStartColumn(), span.getEndRow(), span.getEndColumn()));
+    }
+    if (span.getStartColumn() < area.getStartColumn()) {
+      parts.add(CellSpan.fromStartEnd(startRow, span.getStartColumn(), endRow, area.getStartColumn() - 1));
+    }
+    if (span.getEndColumn() > area.getEndColumn()) {
+      parts.add(CellSpan.fromStartEnd(startRow, area.getEndColumn() + 1, endRow, span.getEndColumn()));
+    }
+    return parts;
+  }
+
+  /**
+   * @param l The listener to add.
+   */
+  public void addSpanSelectionListener(SpanSelectionListener l) {
+    listenerList.add(SpanSelectionListener.class, l);
+  }
+
+  /**
+   * @param l The listener to remove.
+   */
+  public void removeSpanSelectionListener(SpanSelectionListener l) {
+    listenerList.remove(SpanSelectionListener.class, l);
+  }
+
+  protected void fireSelectionChanged(CellSpan area) {
+    var e = new SpanSelectionEvent(this, area);
+    Object[] listeners = listenerList.getListenerList();
+    for (int i = listeners.length - 2; i >= 0; i -= 2) {
+      if (listeners[i] == SpanSelectionListener.class) {
+        ((SpanSelectionListener) listeners[i + 1]).selectionChanged(e);
+      }
+    }
+  }
+}
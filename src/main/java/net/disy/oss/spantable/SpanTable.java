@@ -1,29 +1,455 @@
 package net.disy.oss.spantable;
 
 import javax.swing.*;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 
-public class SpanTable extends JTable {
+public class SpanTable extends JTable implements SpanModelListener, SpanSelectionListener {
+  private ViewSpanTableModel viewSpanModel;
+  private final Rectangle dirtyClipRect = new Rectangle();
+  private final Point dirtyPoint = new Point();
+  private boolean spanClosureSelection;
+  private boolean spanClosurePending;
+  private SpanSelectionModel spanSelectionModel;
+
+  /**
+   * Enables growing an extended selection to the closure of the CellSpans it
+   * intersects, so a selection never cuts through a CellSpan. The selection is grown
+   * whenever it is extended, e.g. with shift and the arrow keys or by dragging the
+   * mouse. While the selection is adjusting, e.g. during a drag, the growing is
+   * deferred to the end of the current event, so several updates are coalesced.
+   * @param spanClosureSelection True to grow extended selections, false by default.
+   */
+  public void setSpanClosureSelection(boolean spanClosureSelection) {
+    var old = this.spanClosureSelection;
+    this.spanClosureSelection = spanClosureSelection;
+    firePropertyChange("spanClosureSelection", old, spanClosureSelection);
+  }
+
+  /**
+   * @return True if extended selections are grown to the closure of their CellSpans.
+   */
+  public boolean isSpanClosureSelection() {
+    return spanClosureSelection;
+  }
+
+  /**
+   * Sets a model storing the selected cells as rectangles, which replaces the selection
+   * of rows and columns for {@link #isCellSelected(int, int)} and painting. Every
+   * selected rectangle is grown to the closure of the CellSpans it intersects, so
+   * CellSpans are selected as a whole, and unlike the selection of rows and columns
+   * any set of rectangles can be selected, e.g. with ctrl.
+   * <p>
+   * The selection of rows and columns is still updated and provides the anchor and the
+   * lead for the keyboard navigation. The rectangles are stored in view coordinates, so
+   * the selection is cleared when rows are inserted, deleted or sorted.
+   * @param spanSelectionModel The model of the selected cells or null to use the
+   *                           selection of rows and columns, which is the default.
+   */
+  public void setSpanSelectionModel(SpanSelectionModel spanSelectionModel) {
+    var old = this.spanSelectionModel;
+    if (old == spanSelectionModel) {
+      return;
+    }
+    if (old != null) {
+      old.removeSpanSelectionListener(this);
+    }
+    this.spanSelectionModel = spanSelectionModel;
+    if (spanSelectionModel != null) {
+      spanSelectionModel.addSpanSelectionListener(this);
+    }
+    firePropertyChange("spanSelectionModel", old, spanSelectionModel);
+    repaint();
+  }
+
+  /**
+   * @return The model of the selected cells or null if the selection of rows and
+   * columns is used.
+   */
+  public SpanSelectionModel getSpanSelectionModel() {
+    return spanSelectionModel;
+  }
+
+  /**
+   * Returns the CellSpans of the model in view coordinates or null if the model
+   * is no ISpanTableModel.
+   * @return The CellSpans in view coordinates.
+   */
+  public ISpanTableModel getSpanModel() {
+    if (!(getModel() instanceof ISpanTableModel)) {
+      return null;
+    }
+    if (viewSpanModel == null) {
+      viewSpanModel = new ViewSpanTableModel(this);
+    }
+    return viewSpanModel;
+  }
+
+  private void invalidateSpanModel() {
+    if (viewSpanModel != null) {
+      viewSpanModel.invalidate();
+    }
+  }
+
+  @Override
+  public void setModel(TableModel dataModel) {
+    var oldModel = getModel();
+    super.setModel(dataModel);
+    if (oldModel == dataModel) {
+      return;
+    }
+    if (oldModel instanceof ISpanTableModel) {
+      ((ISpanTableModel) oldModel).removeSpanModelListener(this);
+    }
+    if (dataModel instanceof ISpanTableModel) {
+      ((ISpanTableModel) dataModel).addSpanModelListener(this);
+    }
+    invalidateSpanModel();
+  }
+
+  @Override
+  public void setRowSorter(RowSorter<? extends TableModel> sorter) {
+    super.setRowSorter(sorter);
+    invalidateSpanModel();
+  }
+
+  @Override
+  public void setColumnModel(TableColumnModel columnModel) {
+    super.setColumnModel(columnModel);
+    invalidateSpanModel();
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    if (affectsSpans(e)) {
+      invalidateSpanModel();
+    }
+    if (spanSelectionModel != null &&
+        (e.getType() != TableModelEvent.UPDATE || e.getFirstRow() == TableModelEvent.HEADER_ROW)) {
+      spanSelectionModel.clearSelection();
+    }
+    super.tableChanged(e);
+  }
+
+  /**
+   * Returns false for updates of cells in a column without CellSpans. If the update
+   * changes the sort order, the RowSorter notifies {@link #sorterChanged(RowSorterEvent)}.
+   */
+  private boolean affectsSpans(TableModelEvent e) {
+    if (e.getType() != TableModelEvent.UPDATE || e.getFirstRow() == TableModelEvent.HEADER_ROW ||
+        e.getColumn() == TableModelEvent.ALL_COLUMNS || !(getModel() instanceof ISpanTableModel)) {
+      return true;
+    }
+    return ((ISpanTableModel) getModel()).containsSpans(e.getColumn());
+  }
+
+  /**
+   * Invalidates the CellSpans in view coordinates before JTable maps the selection
+   * to the new order of the rows. JTable registers itself as listener of its RowSorter.
+   */
+  @Override
+  public void sorterChanged(RowSorterEvent e) {
+    invalidateSpanModel();
+    if (spanSelectionModel != null && e.getType() == RowSorterEvent.Type.SORTED) {
+      spanSelectionModel.clearSelection();
+    }
+    super.sorterChanged(e);
+  }
+
+  @Override
+  public void columnAdded(TableColumnModelEvent e) {
+    invalidateSpanModel();
+    super.columnAdded(e);
+  }
+
+  @Override
+  public void columnRemoved(TableColumnModelEvent e) {
+    invalidateSpanModel();
+    super.columnRemoved(e);
+  }
+
+  @Override
+  public void columnMoved(TableColumnModelEvent e) {
+    if (e.getFromIndex() != e.getToIndex()) {
+      invalidateSpanModel();
+    }
+    super.columnMoved(e);
+  }
+
   @Override
   public void changeSelection(int row, int column, boolean toggle, boolean extend) {
-    if (getModel() instanceof ISpanTableModel) {
-      var spanModel = (ISpanTableModel) getModel();
-      var cellSpan = spanModel.getCellSpanContaining(row, column);
-      if (cellSpan.isPresent()) {
-        var span = cellSpan.get();
-        super.changeSelection(span.getStartRow(), span.getStartColumn(), toggle, extend);
-        return;
+    var spanModel = getSpanModel();
+    if (spanModel != null) {
+      var spanIndex = spanModel.findSpanIndex(row, column);
+      if (spanIndex != ISpanTableModel.NO_SPAN) {
+        row = spanModel.getSpanStartRow(spanIndex);
+        column = spanModel.getSpanStartColumn(spanIndex);
       }
     }
+    var wasSelected = isCellSelected(row, column);
     super.changeSelection(row, column, toggle, extend);
+    if (spanSelectionModel != null) {
+      changeSpanSelection(row, column, toggle, extend, wasSelected);
+    }
+    if (spanModel != null && spanClosureSelection && extend && !toggle) {
+      if (!getSelectionModel().getValueIsAdjusting()) {
+        selectSpanClosure();
+      } else if (!spanClosurePending) {
+        spanClosurePending = true;
+        SwingUtilities.invokeLater(() -> {
+          spanClosurePending = false;
+          selectSpanClosure();
+        });
+      }
+    }
   }
 
+  /**
+   * Applies a call of changeSelection to the {@link SpanSelectionModel} the way
+   * JTable applies it to the selection of rows and columns.
+   */
+  private void changeSpanSelection(int row, int column, boolean toggle, boolean extend, boolean wasSelected) {
+    var area = getSelectionArea(row, column, row, column);
+    if (area == null) {
+      return;
+    }
+    if (getSelectionModel().getSelectionMode() == ListSelectionModel.SINGLE_SELECTION) {
+      spanSelectionModel.setSelection(area);
+      return;
+    }
+    if (!extend) {
+      if (!toggle) {
+        spanSelectionModel.setSelection(area);
+      } else if (wasSelected) {
+        spanSelectionModel.removeSelection(area);
+      } else {
+        spanSelectionModel.addSelection(area);
+      }
+      return;
+    }
+    var anchorRow = getSelectionModel().getAnchorSelectionIndex();
+    var anchorColumn = getColumnModel().getSelectionModel().getAnchorSelectionIndex();
+    if (anchorRow < 0 || anchorRow >= getRowCount()) {
+      anchorRow = row;
+    }
+    if (anchorColumn < 0 || anchorColumn >= getColumnCount()) {
+      anchorColumn = column;
+    }
+    area = getSelectionArea(
+        Math.min(anchorRow, row), Math.min(anchorColumn, column),
+        Math.max(anchorRow, row), Math.max(anchorColumn, column));
+    if (!toggle) {
+      spanSelectionModel.setSelection(area);
+    } else if (spanSelectionModel.isCellSelected(anchorRow, anchorColumn)) {
+      // like JTable the state of the anchor is applied to the range
+      spanSelectionModel.addSelection(area);
+    } else {
+      spanSelectionModel.removeSelection(area);
+    }
+  }
+
+  /**
+   * Returns the selected area for the given cells, which contains whole rows or columns
+   * if only rows or columns can be selected and the closure of its CellSpans, or null
+   * if no cells can be selected.
+   */
+  private CellSpan getSelectionArea(int startRow, int startColumn, int endRow, int endColumn) {
+    var rowsSelected = getRowSelectionAllowed();
+    var columnsSelected = getColumnSelectionAllowed();
+    if (!rowsSelected && !columnsSelected) {
+      return null;
+    }
+    var area = CellSpan.fromStartEnd(
+        rowsSelected ? startRow : 0,
+        columnsSelected ? startColumn : 0,
+        rowsSelected ? endRow : getRowCount() - 1,
+        columnsSelected ? endColumn : getColumnCount() - 1);
+    var spanModel = getSpanModel();
+    return spanModel == null ? area : SpanTableHelper.getSpanClosure(spanModel, area);
+  }
+
+  @Override
+  public boolean isCellSelected(int row, int column) {
+    if (spanSelectionModel == null) {
+      return super.isCellSelected(row, column);
+    }
+    return spanSelectionModel.isCellSelected(row, column);
+  }
+
+  @Override
+  public void selectAll() {
+    super.selectAll();
+    if (spanSelectionModel != null && getRowCount() > 0 && getColumnCount() > 0) {
+      spanSelectionModel.setSelection(CellSpan.fromStartEnd(0, 0, getRowCount() - 1, getColumnCount() - 1));
+    }
+  }
+
+  @Override
+  public void clearSelection() {
+    super.clearSelection();
+    // called by the constructor of JTable before the fields are initialized
+    if (spanSelectionModel != null) {
+      spanSelectionModel.clearSelection();
+    }
+  }
+
+  /**
+   * Grows the selection between the anchor and the lead to the closure of the
+   * CellSpans it intersects, keeping the anchor and the lead.
+   */
+  private void selectSpanClosure() {
+    var spanModel = getSpanModel();
+    var rowModel = getSelectionModel();
+    var columnModel = getColumnModel().getSelectionModel();
+    var rowsSelected = getRowSelectionAllowed();
+    var columnsSelected = getColumnSelectionAllowed();
+    var anchorRow = rowModel.getAnchorSelectionIndex();
+    var leadRow = rowModel.getLeadSelectionIndex();
+    var anchorColumn = columnModel.getAnchorSelectionIndex();
+    var leadColumn = columnModel.getLeadSelectionIndex();
+    if (spanModel == null || anchorRow < 0 || leadRow < 0 || anchorColumn < 0 || leadColumn < 0 ||
+        anchorRow >= getRowCount() || leadRow >= getRowCount() ||
+        anchorColumn >= getColumnCount() || leadColumn >= getColumnCount()) {
+      return;
+    }
+    // without cell selection whole rows or columns are selected
+    var area = CellSpan.fromStartEnd(
+        rowsSelected ? Math.min(anchorRow, leadRow) : 0,
+        columnsSelected ? Math.min(anchorColumn, leadColumn) : 0,
+        rowsSelected ? Math.max(anchorRow, leadRow) : getRowCount() - 1,
+        columnsSelected ? Math.max(anchorColumn, leadColumn) : getColumnCount() - 1);
+    var closure = SpanTableHelper.getSpanClosure(spanModel, area);
+    if (closure.equals(area)) {
+      return;
+    }
+    if (rowsSelected) {
+      selectRange(rowModel, closure.getStartRow(), closure.getEndRow(), anchorRow, leadRow);
+    }
+    if (columnsSelected) {
+      selectRange(columnModel, closure.getStartColumn(), closure.getEndColumn(), anchorColumn, leadColumn);
+    }
+  }
+
+  private static void selectRange(ListSelectionModel model, int start, int end, int anchor, int lead) {
+    if (model.getSelectionMode() == ListSelectionModel.SINGLE_SELECTION) {
+      return;
+    }
+    var adjusting = model.getValueIsAdjusting();
+    model.setValueIsAdjusting(true);
+    model.setSelectionInterval(start, end);
+    // sets the anchor and the lead without changing the selection
+    model.addSelectionInterval(anchor, lead);
+    model.setValueIsAdjusting(adjusting);
+  }
+
+  /**
+   * Repaints the cells whose CellSpans changed. The area of the event is given in model
+   * coordinates, so with a RowSorter or reordered columns the view rows and columns of
+   * its cells are looked up and the area containing all of them is repainted.
+   */
+  @Override
+  public void spansChanged(SpanModelEvent e) {
+    invalidateSpanModel();
+    var area = e.getArea();
+    if (area == null) {
+      repaint();
+      return;
+    }
+    if (!((ViewSpanTableModel) getSpanModel()).isIdentity()) {
+      area = convertAreaToView(area);
+      if (area == null) {
+        return;
+      }
+    }
+    var dirtyRect = getCellRect(area.getStartRow(), area.getStartColumn(), true);
+    dirtyRect.add(getCellRect(area.getEndRow(), area.getEndColumn(), true));
+    repaint(dirtyRect);
+  }
+
+  /**
+   * Returns the smallest area in view coordinates containing the view cells of the
+   * given area in model coordinates or null if none of its cells is shown.
+   */
+  private CellSpan convertAreaToView(CellSpan area) {
+    var startRow = Integer.MAX_VALUE;
+    var endRow = -1;
+    var sorter = getRowSorter();
+    if (sorter == null) {
+      startRow = Math.max(area.getStartRow(), 0);
+      endRow = Math.min(area.getEndRow(), getRowCount() - 1);
+    } else {
+      var lastRow = Math.min(area.getEndRow(), sorter.getModelRowCount() - 1);
+      for (int row = Math.max(area.getStartRow(), 0); row <= lastRow; row++) {
+        var viewRow = sorter.convertRowIndexToView(row);
+        if (viewRow >= 0) {
+          startRow = Math.min(startRow, viewRow);
+          endRow = Math.max(endRow, viewRow);
+        }
+      }
+    }
+    var startColumn = Integer.MAX_VALUE;
+    var endColumn = -1;
+    var lastColumn = Math.min(area.getEndColumn(), getModel().getColumnCount() - 1);
+    for (int column = Math.max(area.getStartColumn(), 0); column <= lastColumn; column++) {
+      var viewColumn = convertColumnIndexToView(column);
+      if (viewColumn >= 0) {
+        startColumn = Math.min(startColumn, viewColumn);
+        endColumn = Math.max(endColumn, viewColumn);
+      }
+    }
+    if (startRow > endRow || startColumn > endColumn) {
+      return null;
+    }
+    return CellSpan.fromStartEnd(startRow, startColumn, endRow, endColumn);
+  }
+
+  /**
+   * Repaints the cells whose selection changed.
+   */
+  @Override
+  public void selectionChanged(SpanSelectionEvent e) {
+    var area = e.getArea();
+    if (area == null) {
+      repaint();
+      return;
+    }
+    var dirtyRect = getCellRect(area.getStartRow(), area.getStartColumn(), true);
+    dirtyRect.add(getCellRect(area.getEndRow(), area.getEndColumn(), true));
+    repaint(dirtyRect);
+  }
+
+  /**
+   * Extends the area to the visible parts of the intersecting CellSpans and clips it
+   * to the visible area of the table.
+   */
   @Override
   public void repaint(Rectangle r) {
-    if (getModel() instanceof ISpanTableModel) {
-      var spanModel = (ISpanTableModel) getModel();
-      SpanTableHelper.adjustDirtyRect(this, spanModel, r);
+    var spanModel = getSpanModel();
+    if (spanModel != null) {
+      // repaint may be called from any thread, the scratch objects are only used on the EDT
+      var onEdt = SwingUtilities.isEventDispatchThread();
+      var clipRect = onEdt ? dirtyClipRect : new Rectangle();
+      computeVisibleRect(clipRect);
+      if (ui instanceof SpanTableUi) {
+        ((SpanTableUi) ui).addCachedArea(clipRect);
+      }
+      SpanTableHelper.adjustDirtyRect(this, spanModel, r, clipRect, onEdt ? dirtyPoint : new Point());
     }
     super.repaint(r);
   }
+
+  /**
+   * Invalidates the tiles of the area, if the {@link SpanTableUi} renders tiles.
+   */
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height) {
+    if (ui instanceof SpanTableUi) {
+      ((SpanTableUi) ui).invalidateTiles(x, y, width, height);
+    }
+    super.repaint(tm, x, y, width, height);
+  }
 }
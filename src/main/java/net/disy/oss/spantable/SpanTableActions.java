@@ -29,6 +29,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeListener;
+import java.util.List;
 
 /**
  * Adapted from openjdk BasicTableUI.Actions.
@@ -212,28 +213,50 @@ public class SpanTableActions implements Action {
         return Math.min(Math.max(i, a), b - 1);
     }
 
+    /**
+     * Moves the lead by dx and dy, at least out of the CellSpan containing the lead.
+     * If the target is covered by a CellSpan starting before it, the lead is moved
+     * past this CellSpan when moving forwards. Otherwise {@link SpanTable} would move
+     * the lead back to the start of the CellSpan, possibly behind the current lead.
+     * Moving backwards lands on the start of the CellSpan, which is the first cell
+     * before the target that is not covered.
+     */
     private void moveWithinTableRange(JTable table, int dx, int dy) {
         var nextRow = leadRow + dy;
         var nextCol = leadColumn + dx;
-        if (table.getModel() instanceof ISpanTableModel) {
-            var spanModel = (ISpanTableModel) table.getModel();
-            var currentSpan = spanModel.getCellSpanContaining(leadRow, leadColumn);
-            if (currentSpan.isPresent()) {
-                var span = currentSpan.get();
+        var rowCount = table.getRowCount();
+        var columnCount = table.getColumnCount();
+        var spanModel = SpanTableHelper.getSpanModel(table);
+        if (spanModel != null) {
+            var spanIndex = spanModel.findSpanIndex(leadRow, leadColumn);
+            if (spanIndex != ISpanTableModel.NO_SPAN) {
                 if (dy > 0) { //moving down
-                    nextRow = span.getEndRow() + 1;
+                    nextRow = Math.max(nextRow, spanModel.getSpanEndRow(spanIndex) + 1);
                 } else if (dy < 0) { //moving up
-                    nextRow = span.getStartRow() - 1;
+                    nextRow = Math.min(nextRow, spanModel.getSpanStartRow(spanIndex) - 1);
                 }
                 if (dx > 0) { // to the right
-                    nextCol = span.getEndColumn() + 1;
+                    nextCol = Math.max(nextCol, spanModel.getSpanEndColumn(spanIndex) + 1);
                 } else if (dx < 0) {//to the left
-                    nextCol = span.getStartColumn() - 1;
+                    nextCol = Math.min(nextCol, spanModel.getSpanStartColumn(spanIndex) - 1);
+                }
+            }
+            nextRow = clipToRange(nextRow, 0, rowCount);
+            nextCol = clipToRange(nextCol, 0, columnCount);
+            var targetIndex = spanModel.findSpanIndex(nextRow, nextCol);
+            if (targetIndex != ISpanTableModel.NO_SPAN) {
+                var endRow = spanModel.getSpanEndRow(targetIndex);
+                var endColumn = spanModel.getSpanEndColumn(targetIndex);
+                if (dy > 0 && spanModel.getSpanStartRow(targetIndex) < nextRow && endRow + 1 < rowCount) {
+                    nextRow = endRow + 1;
+                }
+                if (dx > 0 && spanModel.getSpanStartColumn(targetIndex) < nextCol && endColumn + 1 < columnCount) {
+                    nextCol = endColumn + 1;
                 }
             }
         }
-        leadRow = clipToRange(nextRow, 0, table.getRowCount());
-        leadColumn = clipToRange(nextCol, 0, table.getColumnCount());
+        leadRow = clipToRange(nextRow, 0, rowCount);
+        leadColumn = clipToRange(nextCol, 0, columnCount);
     }
 
     private static int sign(int num) {
@@ -266,8 +289,26 @@ public class SpanTableActions implements Action {
         boolean rs = table.getRowSelectionAllowed();
         boolean cs = table.getColumnSelectionAllowed();
 
-        // both column and row selection
-        if (rs && cs) {
+        // the rectangles of a SpanSelectionModel replace the selected rows and columns
+        List<CellSpan> selectedAreas = null;
+        if (table instanceof SpanTable && ((SpanTable) table).getSpanSelectionModel() != null) {
+            selectedAreas = ((SpanTable) table).getSpanSelectionModel().getSelectedAreas();
+        }
+
+        if (selectedAreas != null) {
+            long cellCount = 0;
+            minX = minY = Integer.MAX_VALUE;
+            maxX = maxY = -1;
+            for (var area : selectedAreas) {
+                cellCount += (long) area.getRowSpan() * area.getColumnSpan();
+                minX = Math.min(minX, area.getStartColumn());
+                maxX = Math.max(maxX, area.getEndColumn());
+                minY = Math.min(minY, area.getStartRow());
+                maxY = Math.max(maxY, area.getEndRow());
+            }
+            totalCount = (int) Math.min(cellCount, Integer.MAX_VALUE);
+            // both column and row selection
+        } else if (rs && cs) {
             totalCount = table.getSelectedRowCount() * table.getSelectedColumnCount();
             minX = csm.getMinSelectionIndex();
             maxX = csm.getMaxSelectionIndex();
@@ -340,12 +381,225 @@ public class SpanTableActions implements Action {
         leadRow = Math.min(Math.max(leadRow, minY - 1), maxY + 1);
         leadColumn = Math.min(Math.max(leadColumn, minX - 1), maxX + 1);
 
-        // find the next position, possibly looping until it is selected
-        do {
+        if (!stayInSelection) {
             calcNextPos(dx, minX, maxX, dy, minY, maxY);
-        } while (stayInSelection && !table.isCellSelected(leadRow, leadColumn));
+            return false;
+        }
+
+        // find the next selected position, jumping over unselected rows and
+        // columns and over the cells covered by CellSpans
+        var spanModel = SpanTableHelper.getSpanModel(table);
+        var startRow = leadRow;
+        var startColumn = leadColumn;
+        var start = travelOrder(startRow, startColumn);
+        var wrapped = false;
+        while (true) {
+            var previous = travelOrder(leadRow, leadColumn);
+            if (selectedAreas != null) {
+                // the areas contain their CellSpans as a whole, so no rows or columns are skipped
+                moveToNextSelectedCell(selectedAreas);
+                if (spanModel == null || !skipCoveredCells(spanModel, rsm, false, csm, false, minX, maxX, minY, maxY)) {
+                    return true;
+                }
+            } else {
+                calcNextPos(dx, minX, maxX, dy, minY, maxY);
+                if (!table.isCellSelected(leadRow, leadColumn)) {
+                    skipUnselected(rsm, rs, csm, cs, minX, maxX, minY, maxY);
+                } else if (spanModel == null || !skipCoveredCells(spanModel, rsm, rs, csm, cs, minX, maxX, minY, maxY)) {
+                    return true;
+                }
+            }
+            // stop after one full wrap, e.g. if isCellSelected disagrees with the selection models
+            var current = travelOrder(leadRow, leadColumn);
+            if (current <= previous) {
+                if (wrapped) {
+                    break;
+                }
+                wrapped = true;
+            }
+            if (wrapped && current >= start) {
+                break;
+            }
+        }
+        // no selected cell can be reached, so move like without a selection
+        leadRow = startRow;
+        leadColumn = startColumn;
+        calcNextPos(dx, 0, table.getColumnCount() - 1, dy, 0, table.getRowCount() - 1);
+        return false;
+    }
+
+    /**
+     * Returns the position of the cell in the order in which the lead moves, lines
+     * of rows for dx and lines of columns for dy.
+     */
+    private long travelOrder(int row, int column) {
+        var step = dx != 0 ? dx : dy;
+        var line = dx != 0 ? row : column;
+        var position = dx != 0 ? column : row;
+        return ((long) step * line << 32) + (long) step * position;
+    }
+
+    /**
+     * Moves the lead to the next cell of the selected areas in the order of
+     * travelOrder, wrapping from the last to the first selected cell. The areas
+     * must not be empty.
+     */
+    private void moveToNextSelectedCell(List<CellSpan> areas) {
+        var step = dx != 0 ? dx : dy;
+        // with step -1 the coordinates are negated, so the search always goes forwards
+        var line = (long) step * (dx != 0 ? leadRow : leadColumn);
+        var position = (long) step * (dx != 0 ? leadColumn : leadRow);
+        var next = nextSelectedCell(areas, step, line, position);
+        if (next == null) {
+            next = nextSelectedCell(areas, step, Long.MIN_VALUE, 0);
+        }
+        leadRow = (int) (step * (dx != 0 ? next[0] : next[1]));
+        leadColumn = (int) (step * (dx != 0 ? next[1] : next[0]));
+    }
+
+    /**
+     * Returns the line and position of the first cell of the areas after the given
+     * line and position in negated coordinates for step -1, or null if there is none.
+     */
+    private long[] nextSelectedCell(List<CellSpan> areas, int step, long line, long position) {
+        long[] next = null;
+        for (var area : areas) {
+            long firstLine = dx != 0 ? area.getStartRow() : area.getStartColumn();
+            long lastLine = dx != 0 ? area.getEndRow() : area.getEndColumn();
+            long firstPosition = dx != 0 ? area.getStartColumn() : area.getStartRow();
+            long lastPosition = dx != 0 ? area.getEndColumn() : area.getEndRow();
+            if (step < 0) {
+                var lineBound = firstLine;
+                firstLine = -lastLine;
+                lastLine = -lineBound;
+                var positionBound = firstPosition;
+                firstPosition = -lastPosition;
+                lastPosition = -positionBound;
+            }
+            long[] candidate;
+            if (line < firstLine) {
+                candidate = new long[]{firstLine, firstPosition};
+            } else if (line > lastLine) {
+                continue;
+            } else if (position < firstPosition) {
+                candidate = new long[]{line, firstPosition};
+            } else if (position < lastPosition) {
+                candidate = new long[]{line, position + 1};
+            } else if (line < lastLine) {
+                candidate = new long[]{line + 1, firstPosition};
+            } else {
+                continue;
+            }
+            if (next == null || candidate[0] < next[0] || (candidate[0] == next[0] && candidate[1] < next[1])) {
+                next = candidate;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Moves the lead to the position before the next cell, whose row and column are
+     * selected. Called if the lead is not selected. A whole unselected line is skipped
+     * at once, the line wraps like in calcNextPos.
+     */
+    private void skipUnselected(ListSelectionModel rsm, boolean rs, ListSelectionModel csm, boolean cs,
+                                int minX, int maxX, int minY, int maxY) {
+        if (dx != 0) {
+            if (rs && !rsm.isSelectedIndex(leadRow)) {
+                leadRow = nextSelectedLine(rsm, leadRow, dx, minY, maxY) - dx;
+                leadColumn = dx > 0 ? maxX : minX;
+            } else {
+                var column = nextSelectedIndex(csm, leadColumn, dx, minX, maxX);
+                leadColumn = column < 0 ? (dx > 0 ? maxX : minX) : column - dx;
+            }
+        } else {
+            if (cs && !csm.isSelectedIndex(leadColumn)) {
+                leadColumn = nextSelectedLine(csm, leadColumn, dy, minX, maxX) - dy;
+                leadRow = dy > 0 ? maxY : minY;
+            } else {
+                var row = nextSelectedIndex(rsm, leadRow, dy, minY, maxY);
+                leadRow = row < 0 ? (dy > 0 ? maxY : minY) : row - dy;
+            }
+        }
+    }
+
+    /**
+     * Each CellSpan is visited once, at its upper left selected cell within the range.
+     * If the lead is on another cell of a CellSpan, it is moved to the last covered cell
+     * of the CellSpan in the current line, or backwards to the upper left selected cell
+     * if it lies in the current line.
+     * @return True if the lead was moved and the search has to go on.
+     */
+    private boolean skipCoveredCells(ISpanTableModel spanModel,
+                                     ListSelectionModel rsm, boolean rs, ListSelectionModel csm, boolean cs,
+                                     int minX, int maxX, int minY, int maxY) {
+        var spanIndex = spanModel.findSpanIndex(leadRow, leadColumn);
+        if (spanIndex == ISpanTableModel.NO_SPAN) {
+            return false;
+        }
+        var startRow = Math.max(spanModel.getSpanStartRow(spanIndex), minY);
+        var endRow = Math.min(spanModel.getSpanEndRow(spanIndex), maxY);
+        var startColumn = Math.max(spanModel.getSpanStartColumn(spanIndex), minX);
+        var endColumn = Math.min(spanModel.getSpanEndColumn(spanIndex), maxX);
+        var firstRow = rs ? firstSelectedIndex(rsm, startRow, endRow) : startRow;
+        var firstColumn = cs ? firstSelectedIndex(csm, startColumn, endColumn) : startColumn;
+        if (leadRow == firstRow && leadColumn == firstColumn) {
+            return false;
+        }
+        if (dx != 0) {
+            if (dx < 0 && leadRow == firstRow && leadColumn > firstColumn) {
+                leadColumn = firstColumn;
+                return false;
+            }
+            leadColumn = dx > 0 ? endColumn : startColumn;
+        } else {
+            if (dy < 0 && leadColumn == firstColumn && leadRow > firstRow) {
+                leadRow = firstRow;
+                return false;
+            }
+            leadRow = dy > 0 ? endRow : startRow;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next selected index after from in the given direction,
+     * wrapping at the bounds. The selection contains an index within the bounds.
+     */
+    private static int nextSelectedLine(ListSelectionModel model, int from, int step, int min, int max) {
+        var index = nextSelectedIndex(model, from, step, min, max);
+        if (index >= 0) {
+            return index;
+        }
+        return nextSelectedIndex(model, step > 0 ? min - 1 : max + 1, step, min, max);
+    }
+
+    /**
+     * Returns the next selected index after from in the given direction or -1 if there
+     * is none within the bounds. The bounds of the selection are used to skip ahead.
+     */
+    private static int nextSelectedIndex(ListSelectionModel model, int from, int step, int min, int max) {
+        if (step > 0) {
+            max = Math.min(max, model.getMaxSelectionIndex());
+            for (int index = Math.max(from + 1, model.getMinSelectionIndex()); index <= max; index++) {
+                if (model.isSelectedIndex(index)) {
+                    return index;
+                }
+            }
+        } else {
+            min = Math.max(min, model.getMinSelectionIndex());
+            for (int index = Math.min(from - 1, model.getMaxSelectionIndex()); index >= min; index--) {
+                if (model.isSelectedIndex(index)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
 
-        return stayInSelection;
+    private static int firstSelectedIndex(ListSelectionModel model, int from, int to) {
+        var index = nextSelectedIndex(model, from - 1, 1, from, to);
+        return index < 0 ? from : index;
     }
 
     /**
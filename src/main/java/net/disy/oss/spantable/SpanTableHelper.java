@@ -2,12 +2,32 @@ package net.disy.oss.spantable;
 
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
 
 public interface SpanTableHelper {
 
+  /**
+   * Returns the ISpanTableModel of the table in view coordinates.
+   * For a {@link SpanTable} this respects its RowSorter and the order of its columns.
+   * For other tables the model is returned as is.
+   * @param table A JTable.
+   * @return The CellSpans of the table in view coordinates or null if its model is no ISpanTableModel.
+   */
+  static ISpanTableModel getSpanModel(JTable table) {
+    if (table instanceof SpanTable) {
+      return ((SpanTable) table).getSpanModel();
+    }
+    if (table.getModel() instanceof ISpanTableModel) {
+      return (ISpanTableModel) table.getModel();
+    }
+    return null;
+  }
+
   /**
    * Calculates the CellRect for a given row and column taking CellSpans into account.
    * If row and column are contained in a CellSpan the returned Rectangle represents the CellSpan.
@@ -20,12 +40,18 @@ public interface SpanTableHelper {
    * @return A Rectangle representing the CellSpan.
    */
   static Rectangle getCellRect(JTable table, ISpanTableModel model, int row, int column, boolean includeSpacing) {
-      var cellSpan = model.getCellSpanContaining(row, column);
-      if (cellSpan.isPresent()) {
-        var span = cellSpan.get();
-        var upperLeft = table.getCellRect(span.getStartRow(), span.getStartColumn(), includeSpacing);
-        var lowerRight = table.getCellRect(span.getEndRow(), span.getEndColumn(), includeSpacing);
-        return upperLeft.union(lowerRight);
+      var spanIndex = model.findSpanIndex(row, column);
+      if (spanIndex != ISpanTableModel.NO_SPAN) {
+        var upperLeft = table.getCellRect(
+            model.getSpanStartRow(spanIndex),
+            model.getSpanStartColumn(spanIndex),
+            includeSpacing);
+        var lowerRight = table.getCellRect(
+            model.getSpanEndRow(spanIndex),
+            model.getSpanEndColumn(spanIndex),
+            includeSpacing);
+        upperLeft.add(lowerRight);
+        return upperLeft;
       }
     return table.getCellRect(row, column, includeSpacing);
   }
@@ -33,28 +59,254 @@ public interface SpanTableHelper {
   /**
    * Given a dirtyRect r the dirtyRect is extended to contain all CellSpans.
    * If part of a CellSpan is contained in the dirtyRect we have to extend it so that it contains
-   * the whole CellSpan. The passed Rectangle is modified in place.
+   * the whole visible part of the CellSpan. The passed Rectangle is modified in place.
    * @param table The table for which we want to adjust the dirtyRect.
    * @param model An ISpantTableModel to calculate CellSpans.
    * @param r A dirtyRect as calculated by Swing.
    */
   static void adjustDirtyRect(JTable table, ISpanTableModel model, Rectangle r) {
-    var upperRow = table.rowAtPoint(new Point(r.x, r.y));
-    var lowerRow = table.rowAtPoint(new Point(r.x, r.y + r.height));
-    var leftColumn = table.columnAtPoint(new Point(r.x, r.y));
-    var rightColumn = table.columnAtPoint(new Point(r.x + r.width, r.y));
-    List<CellSpan> intersectingCellSpans = model.getIntersectingCellSpans(CellSpan.fromStartEnd(
-        upperRow,
-        leftColumn,
-        lowerRow,
-        rightColumn));
-    for (var span : intersectingCellSpans) {
-      upperRow = Math.min(span.getStartRow(), upperRow);
-      lowerRow = Math.max(span.getEndRow(), lowerRow);
-    }
-    var upperLeft = table.getCellRect(upperRow, leftColumn, false);
-    var lowerRight = table.getCellRect(lowerRow, rightColumn, false);
-    r.add(upperLeft);
-    r.add(lowerRight);
+    var visibleRect = new Rectangle();
+    table.computeVisibleRect(visibleRect);
+    adjustDirtyRect(table, model, r, visibleRect, new Point());
+  }
+
+  /**
+   * Clips the dirtyRect r to clipRect and extends it to contain the parts of all
+   * intersecting CellSpans within clipRect. So the dirtyRect never grows beyond clipRect,
+   * regardless of the size of the CellSpans. The passed Rectangle is modified in place.
+   * <p>
+   * Only the cells on the border of the dirtyRect are looked up, since every CellSpan
+   * reaching out of the dirtyRect contains one of them. Unless the dirtyRect has to grow
+   * no objects are created.
+   * @param table The table for which we want to adjust the dirtyRect.
+   * @param model An ISpantTableModel to calculate CellSpans.
+   * @param r A dirtyRect as calculated by Swing.
+   * @param clipRect The area which could be painted, usually the visible rect of the table.
+   * @param point A Point used for the calculation, whose value is overwritten.
+   */
+  static void adjustDirtyRect(JTable table, ISpanTableModel model, Rectangle r, Rectangle clipRect, Point point) {
+    Rectangle.intersect(r, clipRect, r);
+    if (r.isEmpty() || table.getRowCount() == 0 || table.getColumnCount() == 0) {
+      r.setSize(0, 0);
+      return;
+    }
+    var upperRow = rowAt(table, point, r.y);
+    var lowerRow = rowAt(table, point, r.y + r.height - 1);
+    var leftColumn = columnAt(table, point, r.x);
+    var rightColumn = columnAt(table, point, r.x + r.width - 1);
+    var firstRow = rowAt(table, point, clipRect.y);
+    var lastRow = rowAt(table, point, clipRect.y + clipRect.height - 1);
+    var firstColumn = columnAt(table, point, clipRect.x);
+    var lastColumn = columnAt(table, point, clipRect.x + clipRect.width - 1);
+    if (firstColumn > lastColumn) {
+      // right to left
+      var column = firstColumn;
+      firstColumn = lastColumn;
+      lastColumn = column;
+    }
+    if (leftColumn > rightColumn) {
+      var column = leftColumn;
+      leftColumn = rightColumn;
+      rightColumn = column;
+    }
+
+    var startRow = upperRow;
+    var endRow = lowerRow;
+    var startColumn = leftColumn;
+    var endColumn = rightColumn;
+    for (int column = leftColumn; column <= rightColumn; column++) {
+      for (int row = upperRow; row <= lowerRow; row++) {
+        var spanIndex = model.findSpanIndex(row, column);
+        if (spanIndex != ISpanTableModel.NO_SPAN) {
+          startRow = Math.min(startRow, model.getSpanStartRow(spanIndex));
+          endRow = Math.max(endRow, model.getSpanEndRow(spanIndex));
+          startColumn = Math.min(startColumn, model.getSpanStartColumn(spanIndex));
+          endColumn = Math.max(endColumn, model.getSpanEndColumn(spanIndex));
+        }
+        if (column != leftColumn && column != rightColumn && row == upperRow && lowerRow > upperRow) {
+          // skip to the last row, only the border of the dirtyRect is looked up
+          row = lowerRow - 1;
+        }
+      }
+    }
+    startRow = Math.max(startRow, firstRow);
+    endRow = Math.min(endRow, lastRow);
+    startColumn = Math.max(startColumn, firstColumn);
+    endColumn = Math.min(endColumn, lastColumn);
+    if (startRow < upperRow || endRow > lowerRow || startColumn < leftColumn || endColumn > rightColumn) {
+      r.add(table.getCellRect(startRow, startColumn, false));
+      r.add(table.getCellRect(endRow, endColumn, false));
+      Rectangle.intersect(r, clipRect, r);
+    }
+  }
+
+  private static int rowAt(JTable table, Point point, int y) {
+    point.setLocation(0, y);
+    var row = table.rowAtPoint(point);
+    return row < 0 ? (y < 0 ? 0 : table.getRowCount() - 1) : row;
+  }
+
+  private static int columnAt(JTable table, Point point, int x) {
+    point.setLocation(x, 0);
+    var column = table.columnAtPoint(point);
+    if (column >= 0) {
+      return column;
+    }
+    var ltr = table.getComponentOrientation().isLeftToRight();
+    return (x < 0) == ltr ? 0 : table.getColumnCount() - 1;
+  }
+
+  /**
+   * Returns the CellSpans which are cut by the upper or the left edge of viewRect.
+   * The value of these CellSpans is painted in their first visible cell, so it moves
+   * whenever the edge moves.
+   * @param table The table whose visible area is viewRect.
+   * @param model An ISpanTableModel to calculate CellSpans.
+   * @param viewRect The visible area of the table.
+   * @return The CellSpans starting above or left of viewRect and reaching into it.
+   */
+  static List<CellSpan> getEdgeSpans(JTable table, ISpanTableModel model, Rectangle viewRect) {
+    var result = new ArrayList<CellSpan>();
+    var upperLeft = viewRect.getLocation();
+    var lowerRight = new Point(viewRect.x + viewRect.width - 1, viewRect.y + viewRect.height - 1);
+    var firstRow = table.rowAtPoint(upperLeft);
+    var firstColumn = table.columnAtPoint(upperLeft);
+    if (firstRow < 0 || firstColumn < 0) {
+      return result;
+    }
+    var lastRow = table.rowAtPoint(lowerRight);
+    var lastColumn = table.columnAtPoint(lowerRight);
+    if (lastRow < 0) {
+      lastRow = table.getRowCount() - 1;
+    }
+    if (lastColumn < 0) {
+      lastColumn = table.getColumnCount() - 1;
+    }
+    for (var span : model.getIntersectingCellSpans(CellSpan.fromStartEnd(firstRow, firstColumn, firstRow, lastColumn))) {
+      if (span.getStartRow() < firstRow) {
+        result.add(span);
+      }
+    }
+    for (var span : model.getIntersectingCellSpans(CellSpan.fromStartEnd(firstRow, firstColumn, lastRow, firstColumn))) {
+      if (span.getStartColumn() < firstColumn && !result.contains(span)) {
+        result.add(span);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Grows the area until it contains every CellSpan it intersects. Since a grown area
+   * may intersect further CellSpans this is repeated, but only the strips added to the
+   * area are queried again.
+   * @param model An ISpanTableModel to calculate CellSpans.
+   * @param area The area to grow.
+   * @return The smallest area containing area and all CellSpans it intersects.
+   */
+  static CellSpan getSpanClosure(ISpanTableModel model, CellSpan area) {
+    var startRow = area.getStartRow();
+    var startColumn = area.getStartColumn();
+    var endRow = area.getEndRow();
+    var endColumn = area.getEndColumn();
+    var queries = new ArrayDeque<CellSpan>();
+    queries.add(area);
+    while (!queries.isEmpty()) {
+      var newStartRow = startRow;
+      var newStartColumn = startColumn;
+      var newEndRow = endRow;
+      var newEndColumn = endColumn;
+      for (var span : model.getIntersectingCellSpans(queries.poll())) {
+        newStartRow = Math.min(newStartRow, span.getStartRow());
+        newStartColumn = Math.min(newStartColumn, span.getStartColumn());
+        newEndRow = Math.max(newEndRow, span.getEndRow());
+        newEndColumn = Math.max(newEndColumn, span.getEndColumn());
+      }
+      if (newStartRow < startRow) {
+        queries.add(CellSpan.fromStartEnd(newStartRow, newStartColumn, startRow - 1, newEndColumn));
+      }
+      if (newEndRow > endRow) {
+        queries.add(CellSpan.fromStartEnd(endRow + 1, newStartColumn, newEndRow, newEndColumn));
+      }
+      if (newStartColumn < startColumn) {
+        queries.add(CellSpan.fromStartEnd(startRow, newStartColumn, endRow, startColumn - 1));
+      }
+      if (newEndColumn > endColumn) {
+        queries.add(CellSpan.fromStartEnd(startRow, endColumn + 1, endRow, newEndColumn));
+      }
+      startRow = newStartRow;
+      startColumn = newStartColumn;
+      endRow = newEndRow;
+      endColumn = newEndColumn;
+    }
+    return CellSpan.fromStartEnd(startRow, startColumn, endRow, endColumn);
+  }
+
+  /**
+   * Checks whether any cell of the given area is selected, with the same result as calling
+   * {@link JTable#isCellSelected(int, int)} for every cell. Selecting a cell selects its
+   * row and its column, so the area contains a selected cell if it contains a selected row
+   * and a selected column. These are found by comparing the area with the bounds of the
+   * selection, only areas lying strictly inside the bounds of a selection with gaps are
+   * checked index by index. The {@link SpanSelectionModel} of a {@link SpanTable} is
+   * asked directly. If the class of the table overrides {@link JTable#isCellSelected(int, int)}
+   * itself, that method is called for every cell of the area instead.
+   * @param table The table whose selection is checked.
+   * @param startRow The first row of the area.
+   * @param startColumn The first column of the area.
+   * @param endRow The last row of the area.
+   * @param endColumn The last column of the area.
+   * @return True if at least one cell of the area is selected.
+   */
+  static boolean isAnyCellSelected(JTable table, int startRow, int startColumn, int endRow, int endColumn) {
+    if (overridesIsCellSelected(table)) {
+      for (int row = startRow; row <= endRow; row++) {
+        for (int column = startColumn; column <= endColumn; column++) {
+          if (table.isCellSelected(row, column)) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+    if (table instanceof SpanTable && ((SpanTable) table).getSpanSelectionModel() != null) {
+      return ((SpanTable) table).getSpanSelectionModel().isSelected(
+          CellSpan.fromStartEnd(startRow, startColumn, endRow, endColumn));
+    }
+    var rowSelectionAllowed = table.getRowSelectionAllowed();
+    var columnSelectionAllowed = table.getColumnSelectionAllowed();
+    if (!rowSelectionAllowed && !columnSelectionAllowed) {
+      return false;
+    }
+    return (!rowSelectionAllowed || isAnyIndexSelected(table.getSelectionModel(), startRow, endRow)) &&
+        (!columnSelectionAllowed ||
+            isAnyIndexSelected(table.getColumnModel().getSelectionModel(), startColumn, endColumn));
+  }
+
+  private static boolean overridesIsCellSelected(JTable table) {
+    try {
+      var declaringClass = table.getClass().getMethod("isCellSelected", int.class, int.class).getDeclaringClass();
+      return declaringClass != JTable.class && declaringClass != SpanTable.class;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static boolean isAnyIndexSelected(ListSelectionModel selectionModel, int from, int to) {
+    var min = selectionModel.getMinSelectionIndex();
+    var max = selectionModel.getMaxSelectionIndex();
+    if (min < 0 || to < min || from > max) {
+      return false;
+    }
+    if (from <= min || to >= max ||
+        selectionModel.getSelectionMode() != ListSelectionModel.MULTIPLE_INTERVAL_SELECTION) {
+      // the range contains one of the bounds or the selection has no gaps
+      return true;
+    }
+    for (int index = from; index <= to; index++) {
+      if (selectionModel.isSelectedIndex(index)) {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -0,0 +1,18 @@
+package net.disy.oss.spantable;
+
+import java.util.EventListener;
+
+/**
+ * Is notified by {@link SpanTableUi} about every painted frame, see
+ * {@link SpanTableUi#setMetrics(SpanTableMetrics)}.
+ * <p>
+ * The listener is called on the event dispatch thread at the end of every paint and
+ * should return quickly, e.g. by adding the statistics to a histogram.
+ */
+@FunctionalInterface
+public interface SpanTableMetrics extends EventListener {
+  /**
+   * @param statistics What painting the frame cost.
+   */
+  void framePainted(PaintStatistics statistics);
+}
@@ -1,12 +1,15 @@
 package net.disy.oss.spantable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import net.disy.oss.spantable.CellSpan.NonOverlappingRowComparator;
 
@@ -25,12 +28,38 @@ public class SpanTableModel  implements ISpanTableModel {
   /**
    * Creates an instance of DelegatingSpanTableModel.
    * The CellSpans are assumed to
-   * not intersect each other. This has to be checked before construction by the caller.
+   * not intersect each other. This has to be checked before construction by the caller,
+   * e.g. with {@link SpanTableModelBuilder#findConflicts(List)}.
    * @param spans A List of not intersecting CellSpans.
    * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
    */
   public SpanTableModel(List<CellSpan> spans, int[] cellSpanColumns) {
+    this(spans, cellSpanColumns, false);
+  }
+
+  /**
+   * Like {@link #SpanTableModel(List, int[])}, but optionally builds the lists of the
+   * columns in parallel in the common ForkJoinPool, see {@link SpanTableModelBuilder}.
+   * The CellSpans are counted per column and stored as primitive keys grouped by column
+   * first, which takes one sequential pass. Then every column sorts its keys and creates
+   * its list independently.
+   */
+  SpanTableModel(List<CellSpan> spans, int[] cellSpanColumns, boolean parallelSort) {
     this.cellSpanColumns = cellSpanColumns;
+    if (parallelSort) {
+      var array = spans.toArray(new CellSpan[0]);
+      var columnOffsets = SpanTableModelBuilder.countColumns(array);
+      var keys = SpanTableModelBuilder.createColumnKeys(array, columnOffsets);
+      var columnLists = IntStream.range(0, columnOffsets.length - 1).parallel()
+          .mapToObj(column -> createColumnList(array, keys, columnOffsets[column], columnOffsets[column + 1]))
+          .collect(Collectors.toList());
+      for (int column = 0; column < columnLists.size(); column++) {
+        if (!columnLists.get(column).isEmpty()) {
+          columnIndexedCellSpans.put(column, columnLists.get(column));
+        }
+      }
+      return;
+    }
     for (var span : spans) {
       var columns = span.getSpannedColumns();
       for (var column : columns) {
@@ -48,18 +77,76 @@ public class SpanTableModel  implements ISpanTableModel {
     }
   }
 
+  /**
+   * Sorts the keys of one column, which are stored from from to to, and returns its CellSpans.
+   */
+  private static List<CellSpan> createColumnList(CellSpan[] spans, long[] keys, int from, int to) {
+    Arrays.sort(keys, from, to);
+    var list = new ArrayList<CellSpan>(to - from);
+    for (int i = from; i < to; i++) {
+      list.add(spans[(int) keys[i]]);
+    }
+    return list;
+  }
+
   @Override
   public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    var spanIndex = findSpanIndex(row, column);
+    if (spanIndex == NO_SPAN) {
+      return Optional.empty();
+    }
+    return Optional.of(getCellSpan(spanIndex));
+  }
+
+  /**
+   * The returned index contains the column in the upper 32 bits and the position
+   * in the list of this column in the lower 32 bits.
+   */
+  @Override
+  public long findSpanIndex(int row, int column) {
     var sortedSpansInColumn = columnIndexedCellSpans.get(column);
     if (sortedSpansInColumn == null) {
-      return Optional.empty();
+      return NO_SPAN;
     }
-    var key = new CellSpan(row, column, 1, 1);
-    int i = Collections.binarySearch(sortedSpansInColumn, key, new NonOverlappingRowComparator()) ;
-    if (i < 0) {
-      return Optional.empty();
+    int low = 0;
+    int high = sortedSpansInColumn.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      var span = sortedSpansInColumn.get(mid);
+      if (span.getEndRow() < row) {
+        low = mid + 1;
+      } else if (span.getStartRow() > row) {
+        high = mid - 1;
+      } else {
+        return ((long) column << 32) | mid;
+      }
     }
-    return Optional.of(sortedSpansInColumn.get(i));
+    return NO_SPAN;
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return columnIndexedCellSpans.get((int) (spanIndex >>> 32)).get((int) spanIndex);
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return getCellSpan(spanIndex).getStartRow();
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return getCellSpan(spanIndex).getStartColumn();
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return getCellSpan(spanIndex).getEndRow();
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return getCellSpan(spanIndex).getEndColumn();
   }
 
   @Override
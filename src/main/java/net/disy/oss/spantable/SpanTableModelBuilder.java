@@ -0,0 +1,202 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Builds a {@link SpanTableModel} off the event dispatch thread.
+ * <p>
+ * Building the index for millions of CellSpans takes long enough to freeze the UI.
+ * {@link #buildAsync(Executor)} builds it on a worker thread and
+ * {@link #buildAndSwap(DelegatingSpanTableModel, Executor)} additionally replaces the
+ * CellSpans of a {@link DelegatingSpanTableModel} on the event dispatch thread, which
+ * repaints the table once. Until then the table keeps using its previous CellSpans.
+ * <p>
+ * The built model is never modified after construction. It is handed over from the
+ * worker thread to the event dispatch thread through a CompletableFuture and
+ * {@link SwingUtilities#invokeLater(Runnable)}, both of which guarantee that the
+ * construction happens-before the model is used on the event dispatch thread.
+ * <p>
+ * With {@link #setValidate(boolean)} the CellSpans are checked for intersections
+ * before the model is built, see {@link #findConflicts(List)}.
+ * <pre>
+ * new SpanTableModelBuilder(spans, cellSpanColumns)
+ *     .setParallelSort(true)
+ *     .setValidate(true)
+ *     .buildAndSwap(model, executor);
+ * </pre>
+ */
+public class SpanTableModelBuilder {
+  private final List<CellSpan> spans;
+  private final int[] cellSpanColumns;
+  private boolean parallelSort;
+  private boolean validate;
+
+  /**
+   * Creates a builder for the given CellSpans. The CellSpans are copied, so the List
+   * may be changed after this call. Unless validation is enabled, the CellSpans are
+   * assumed to not intersect each other.
+   * @param spans A List of not intersecting CellSpans.
+   * @param cellSpanColumns An array containing all column indices, which could contain CellSpans.
+   */
+  public SpanTableModelBuilder(List<CellSpan> spans, int[] cellSpanColumns) {
+    this.spans = List.copyOf(spans);
+    this.cellSpanColumns = cellSpanColumns.clone();
+  }
+
+  /**
+   * @param parallelSort True to sort and store the CellSpans of the columns in parallel
+   *                     using the common ForkJoinPool. False by default.
+   * @return This builder.
+   */
+  public SpanTableModelBuilder setParallelSort(boolean parallelSort) {
+    this.parallelSort = parallelSort;
+    return this;
+  }
+
+  /**
+   * @param validate True to check that the CellSpans do not intersect each other
+   *                 before building the model. False by default.
+   * @return This builder.
+   */
+  public SpanTableModelBuilder setValidate(boolean validate) {
+    this.validate = validate;
+    return this;
+  }
+
+  /**
+   * Builds the model on the calling thread.
+   * @return The built model.
+   * @throws OverlappingSpansException If validation is enabled and CellSpans intersect.
+   */
+  public SpanTableModel build() {
+    if (validate) {
+      var conflicts = findConflicts(spans);
+      if (!conflicts.isEmpty()) {
+        throw new OverlappingSpansException(conflicts);
+      }
+    }
+    return new SpanTableModel(spans, cellSpanColumns, parallelSort);
+  }
+
+  /**
+   * Builds the model on a thread of the given Executor.
+   * @param executor The Executor running the construction.
+   * @return A CompletableFuture completed with the built model or exceptionally with an
+   * {@link OverlappingSpansException}.
+   */
+  public CompletableFuture<SpanTableModel> buildAsync(Executor executor) {
+    return CompletableFuture.supplyAsync(this::build, executor);
+  }
+
+  /**
+   * Builds the model on a thread of the given Executor and then replaces the CellSpans
+   * of target with it on the event dispatch thread.
+   * @param target The model whose CellSpans are replaced.
+   * @param executor The Executor running the construction.
+   * @return A CompletableFuture completed with the built model after it was swapped in.
+   */
+  public CompletableFuture<SpanTableModel> buildAndSwap(DelegatingSpanTableModel target, Executor executor) {
+    return buildAsync(executor).thenApplyAsync(spanModel -> {
+      target.setSpanModel(spanModel);
+      return spanModel;
+    }, SwingUtilities::invokeLater);
+  }
+
+  /**
+   * Finds all pairs of intersecting CellSpans.
+   * <p>
+   * The columns are checked in parallel using the common ForkJoinPool. In every column
+   * a sweep line moves over the CellSpans sorted by start row and keeps the CellSpans
+   * which are not finished yet. A CellSpan intersects exactly these CellSpans, so
+   * without intersections this takes O(n log n) for n CellSpans. A pair of CellSpans
+   * sharing several columns is only reported in the first of them.
+   * @param spans The CellSpans to check.
+   * @return All pairs of intersecting CellSpans, ordered by column and start row.
+   */
+  public static List<SpanConflict> findConflicts(List<CellSpan> spans) {
+    var array = spans.toArray(new CellSpan[0]);
+    var columnOffsets = countColumns(array);
+    var keys = createColumnKeys(array, columnOffsets);
+    var columnCount = columnOffsets.length - 1;
+    return IntStream.range(0, columnCount).parallel()
+        .mapToObj(column -> findConflicts(array, keys, columnOffsets[column], columnOffsets[column + 1], column))
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Counts the CellSpans of every column. The CellSpans of column c get the positions
+   * from result[c] to result[c + 1] in the array created by {@link #createColumnKeys}.
+   */
+  static int[] countColumns(CellSpan[] spans) {
+    var columnCount = 0;
+    for (var span : spans) {
+      columnCount = Math.max(columnCount, span.getEndColumn() + 1);
+    }
+    var columnOffsets = new int[columnCount + 1];
+    for (var span : spans) {
+      for (int column = span.getStartColumn(); column <= span.getEndColumn(); column++) {
+        columnOffsets[column + 1]++;
+      }
+    }
+    for (int column = 0; column < columnCount; column++) {
+      columnOffsets[column + 1] += columnOffsets[column];
+    }
+    return columnOffsets;
+  }
+
+  /**
+   * Stores a key for every column of every CellSpan, grouped by column. A key holds the
+   * start row in the upper and the position in spans in the lower 32 bits, so sorting
+   * the keys of a column sorts its CellSpans by start row without boxing.
+   */
+  static long[] createColumnKeys(CellSpan[] spans, int[] columnOffsets) {
+    var columnCount = columnOffsets.length - 1;
+    var keys = new long[columnOffsets[columnCount]];
+    var next = Arrays.copyOf(columnOffsets, columnCount);
+    for (int i = 0; i < spans.length; i++) {
+      for (int column = spans[i].getStartColumn(); column <= spans[i].getEndColumn(); column++) {
+        keys[next[column]++] = ((long) spans[i].getStartRow() << 32) | i;
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Sweeps over the CellSpans of one column, whose keys are stored from from to to.
+   */
+  private static List<SpanConflict> findConflicts(CellSpan[] spans, long[] keys, int from, int to, int column) {
+    Arrays.sort(keys, from, to);
+    var conflicts = new ArrayList<SpanConflict>();
+    var active = new int[4];
+    var activeCount = 0;
+    for (int i = from; i < to; i++) {
+      var spanIndex = (int) keys[i];
+      var span = spans[spanIndex];
+      var kept = 0;
+      for (int j = 0; j < activeCount; j++) {
+        var other = spans[active[j]];
+        if (other.getEndRow() >= span.getStartRow()) {
+          active[kept++] = active[j];
+          if (column == Math.max(span.getStartColumn(), other.getStartColumn())) {
+            conflicts.add(new SpanConflict(other, span));
+          }
+        }
+      }
+      activeCount = kept;
+      if (activeCount == active.length) {
+        active = Arrays.copyOf(active, activeCount * 2);
+      }
+      active[activeCount++] = spanIndex;
+    }
+    return conflicts;
+  }
+}
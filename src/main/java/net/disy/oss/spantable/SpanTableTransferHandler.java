@@ -0,0 +1,353 @@
+package net.disy.oss.spantable;
+
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.stream.IntStream;
+
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.TransferHandler;
+import javax.swing.plaf.UIResource;
+
+/**
+ * Exports the selected cells of a JTable as tab separated text and as HTML table.
+ * <p>
+ * The text contains the value of every selected cell, like the default TransferHandler
+ * of JTable. In the HTML table the selected cells of a CellSpan are merged using
+ * <code>rowspan</code> and <code>colspan</code> and show the value of the first
+ * selected cell of the CellSpan.
+ * <p>
+ * For a {@link SpanTable} with a {@link SpanSelectionModel} the selected rectangles are
+ * exported instead of the selected rows and columns. The text and the HTML table
+ * contain every row and column of a selected rectangle, cells outside of the
+ * rectangles are left empty.
+ * <p>
+ * The values of the selected cells are converted to strings when the Transferable is
+ * created, so later changes of the table do not affect the copied data and the
+ * TableModel is only read on the thread creating the Transferable. The text and the
+ * HTML are written chunk by chunk while the data is read, so copying a huge selection
+ * does not build the whole text in memory when it is requested as <code>Reader</code>.
+ * <p>
+ * {@link SpanTableUi} installs this TransferHandler unless the table already has one.
+ */
+public class SpanTableTransferHandler extends TransferHandler implements UIResource {
+  private static final DataFlavor[] FLAVORS = {
+      createFlavor("text/html;class=java.io.Reader"),
+      createFlavor("text/html;class=java.lang.String"),
+      createFlavor("text/plain;class=java.io.Reader"),
+      createFlavor("text/plain;class=java.lang.String"),
+      DataFlavor.stringFlavor,
+  };
+
+  private static DataFlavor createFlavor(String mimeType) {
+    try {
+      return new DataFlavor(mimeType);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public int getSourceActions(JComponent c) {
+    return COPY;
+  }
+
+  @Override
+  protected Transferable createTransferable(JComponent c) {
+    if (!(c instanceof JTable)) {
+      return null;
+    }
+    var table = (JTable) c;
+    if (!table.getRowSelectionAllowed() && !table.getColumnSelectionAllowed()) {
+      return null;
+    }
+    SpanSelectionModel spanSelection = null;
+    if (table instanceof SpanTable) {
+      spanSelection = ((SpanTable) table).getSpanSelectionModel();
+    }
+    int[] rows;
+    int[] columns;
+    if (spanSelection != null) {
+      var selectedRows = new BitSet();
+      var selectedColumns = new BitSet();
+      for (var area : spanSelection.getSelectedAreas()) {
+        selectedRows.set(area.getStartRow(), area.getEndRow() + 1);
+        selectedColumns.set(area.getStartColumn(), area.getEndColumn() + 1);
+      }
+      rows = selectedRows.stream().toArray();
+      columns = selectedColumns.stream().toArray();
+    } else {
+      rows = table.getRowSelectionAllowed()
+          ? table.getSelectedRows()
+          : IntStream.range(0, table.getRowCount()).toArray();
+      columns = table.getColumnSelectionAllowed()
+          ? table.getSelectedColumns()
+          : IntStream.range(0, table.getColumnCount()).toArray();
+    }
+    if (rows.length == 0 || columns.length == 0) {
+      return null;
+    }
+    var modelColumns = new int[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      modelColumns[i] = table.convertColumnIndexToModel(columns[i]);
+    }
+    var model = table.getModel();
+    var values = new String[Math.multiplyExact(rows.length, columns.length)];
+    for (int rowIndex = 0; rowIndex < rows.length; rowIndex++) {
+      var modelRow = table.convertRowIndexToModel(rows[rowIndex]);
+      for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+        if (spanSelection != null && !spanSelection.isCellSelected(rows[rowIndex], columns[columnIndex])) {
+          values[rowIndex * columns.length + columnIndex] = "";
+          continue;
+        }
+        var value = model.getValueAt(modelRow, modelColumns[columnIndex]);
+        values[rowIndex * columns.length + columnIndex] = value == null ? "" : value.toString();
+      }
+    }
+    ISpanTableModel spans = null;
+    var spanModel = SpanTableHelper.getSpanModel(table);
+    if (spanModel != null) {
+      var intersecting = new LinkedHashSet<>(spanModel.getIntersectingCellSpans(CellSpan.fromStartEnd(
+          rows[0],
+          columns[0],
+          rows[rows.length - 1],
+          columns[columns.length - 1])));
+      spans = new PackedSpanTableModel(new ArrayList<>(intersecting), columns);
+    }
+    return new TableTransferable(rows, columns, values, spans);
+  }
+
+  private static final class TableTransferable implements Transferable {
+    private final int[] rows;
+    private final int[] columns;
+    /** The values of the cells row by row. */
+    private final String[] values;
+    /** The CellSpans in view coordinates or null. */
+    private final ISpanTableModel spans;
+
+    private TableTransferable(int[] rows, int[] columns, String[] values, ISpanTableModel spans) {
+      this.rows = rows;
+      this.columns = columns;
+      this.values = values;
+      this.spans = spans;
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+      return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+      for (var supported : FLAVORS) {
+        if (supported.equals(flavor)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+      if (!isDataFlavorSupported(flavor)) {
+        throw new UnsupportedFlavorException(flavor);
+      }
+      Reader reader = flavor.isMimeTypeEqual("text/html") ? new HtmlReader(this) : new PlainTextReader(this);
+      if (Reader.class.equals(flavor.getRepresentationClass())) {
+        return reader;
+      }
+      var result = new StringBuilder();
+      var buffer = new char[8192];
+      int count;
+      while ((count = reader.read(buffer)) >= 0) {
+        result.append(buffer, 0, count);
+      }
+      return result.toString();
+    }
+
+    private String getValue(int rowIndex, int columnIndex) {
+      return values[rowIndex * columns.length + columnIndex];
+    }
+  }
+
+  /**
+   * A Reader which creates its content row by row on demand.
+   */
+  private abstract static class RowReader extends Reader {
+    final TableTransferable data;
+    final StringBuilder chunk = new StringBuilder();
+    private int position;
+    /** The next row to write, -1 for the beginning and rows.length for the end. */
+    private int nextRow = -1;
+
+    RowReader(TableTransferable data) {
+      this.data = data;
+    }
+
+    abstract void appendBeginning();
+
+    abstract void appendRow(int rowIndex);
+
+    abstract void appendEnd();
+
+    private boolean fill() {
+      while (position == chunk.length()) {
+        if (nextRow > data.rows.length) {
+          return false;
+        }
+        chunk.setLength(0);
+        position = 0;
+        if (nextRow < 0) {
+          appendBeginning();
+        } else if (nextRow < data.rows.length) {
+          appendRow(nextRow);
+        } else {
+          appendEnd();
+        }
+        nextRow++;
+      }
+      return true;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      var count = 0;
+      while (count < length && fill()) {
+        var n = Math.min(length - count, chunk.length() - position);
+        chunk.getChars(position, position + n, buffer, offset + count);
+        position += n;
+        count += n;
+      }
+      return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() {
+      nextRow = data.rows.length + 1;
+      chunk.setLength(0);
+      position = 0;
+    }
+  }
+
+  private static final class PlainTextReader extends RowReader {
+    PlainTextReader(TableTransferable data) {
+      super(data);
+    }
+
+    @Override
+    void appendBeginning() {
+    }
+
+    @Override
+    void appendRow(int rowIndex) {
+      for (int columnIndex = 0; columnIndex < data.columns.length; columnIndex++) {
+        if (columnIndex > 0) {
+          chunk.append('\t');
+        }
+        chunk.append(data.getValue(rowIndex, columnIndex));
+      }
+      // every row is terminated, like in the text of the default TransferHandler of JTable
+      chunk.append('\n');
+    }
+
+    @Override
+    void appendEnd() {
+    }
+  }
+
+  private static final class HtmlReader extends RowReader {
+    HtmlReader(TableTransferable data) {
+      super(data);
+    }
+
+    @Override
+    void appendBeginning() {
+      chunk.append("<html>\n<body>\n<table>\n");
+    }
+
+    @Override
+    void appendRow(int rowIndex) {
+      var rows = data.rows;
+      var columns = data.columns;
+      chunk.append("<tr>\n");
+      for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+        var spanIndex = data.spans == null
+            ? ISpanTableModel.NO_SPAN
+            : data.spans.findSpanIndex(rows[rowIndex], columns[columnIndex]);
+        if (spanIndex == ISpanTableModel.NO_SPAN) {
+          chunk.append("  <td>");
+          appendEscaped(data.getValue(rowIndex, columnIndex));
+          chunk.append("</td>\n");
+          continue;
+        }
+        var startRow = data.spans.getSpanStartRow(spanIndex);
+        var startColumn = data.spans.getSpanStartColumn(spanIndex);
+        if ((rowIndex > 0 && rows[rowIndex - 1] >= startRow) ||
+            (columnIndex > 0 && columns[columnIndex - 1] >= startColumn)) {
+          // part of a cell written before
+          continue;
+        }
+        var rowSpan = count(rows, rowIndex, data.spans.getSpanEndRow(spanIndex));
+        var columnSpan = count(columns, columnIndex, data.spans.getSpanEndColumn(spanIndex));
+        chunk.append("  <td");
+        if (rowSpan > 1) {
+          chunk.append(" rowspan=\"").append(rowSpan).append('"');
+        }
+        if (columnSpan > 1) {
+          chunk.append(" colspan=\"").append(columnSpan).append('"');
+        }
+        chunk.append('>');
+        appendEscaped(data.getValue(rowIndex, columnIndex));
+        chunk.append("</td>\n");
+      }
+      chunk.append("</tr>\n");
+    }
+
+    /**
+     * Counts the sorted indices from position on which are not greater than last.
+     */
+    private static int count(int[] indices, int position, int last) {
+      var end = position;
+      while (end < indices.length && indices[end] <= last) {
+        end++;
+      }
+      return end - position;
+    }
+
+    private void appendEscaped(String value) {
+      for (int i = 0; i < value.length(); i++) {
+        var c = value.charAt(i);
+        switch (c) {
+          case '<':
+            chunk.append("&lt;");
+            break;
+          case '>':
+            chunk.append("&gt;");
+            break;
+          case '&':
+            chunk.append("&amp;");
+            break;
+          case '"':
+            chunk.append("&quot;");
+            break;
+          default:
+            chunk.append(c);
+        }
+      }
+    }
+
+    @Override
+    void appendEnd() {
+      chunk.append("</table>\n</body>\n</html>");
+    }
+  }
+}
@@ -25,14 +25,23 @@
  */
 package net.disy.oss.spantable;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Optional;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import javax.swing.ActionMap;
@@ -43,18 +52,318 @@ import javax.swing.JTable;
 import javax.swing.JViewport;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.TransferHandler;
 import javax.swing.UIManager;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.plaf.UIResource;
 import javax.swing.plaf.basic.BasicTableUI;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 public class SpanTableUi extends BasicTableUI {
+  private static final byte COVERED = 1;
+  private static final byte NO_BOTTOM_LINE = 2;
+  private static final byte NO_RIGHT_LINE = 4;
+
+  /** The CellSpans intersecting the painted cells, only valid during paint. */
+  private final List<CellSpan> paintedSpans = new ArrayList<>();
+  /** Flags for the painted cells telling how they are covered by CellSpans, reused between paints. */
+  private byte[] cellFlags = new byte[0];
+  /** The positions of the painted rows and columns, only valid during paint. */
+  private final PaintGeometry geometry = new PaintGeometry();
+  private final Rectangle cellRect = new Rectangle();
+  private final Rectangle spanRect = new Rectangle();
+  /** Images of the rendered cells in columns containing CellSpans, null if disabled. */
+  private RenderCache renderCache;
+  private final RenderCacheInvalidator renderCacheInvalidator = new RenderCacheInvalidator();
+  /** Tiles of the rendered table, null if disabled. */
+  private volatile TileCache tileCache;
+  private int tileCacheSize;
+  /** The view rect when the tiles were painted last. */
+  private Rectangle tiledViewRect;
+  private SpanTableMetrics metrics;
+  /** The counters of the current frame, only collected if metrics is set. */
+  private PaintStatistics statistics;
 
+  /**
+   * Sets a listener which is notified about the cost of every painted frame, like the
+   * time spent painting, the painted cells and CellSpans and the hits of the caches.
+   * Without a listener no counters are collected.
+   * @param metrics The listener or null to stop collecting the counters.
+   */
+  public void setMetrics(SpanTableMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return The listener notified about every painted frame or null.
+   */
+  public SpanTableMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Enables rendering into a cache of tiles with a size of 256x256 pixels.
+   * <p>
+   * The table is rendered into VolatileImages, which are composed to paint the table.
+   * Only tiles intersecting an area passed to <code>repaint</code> are rendered again,
+   * so the cost of a repaint depends on what changed and not on the size of the
+   * CellSpans in the changed area. Repainting the exposed parts of the table, e.g.
+   * after scrolling or when a window is moved, just copies the tiles.
+   * <p>
+   * The repaint requests are only tracked for a {@link SpanTable}, other tables are
+   * painted without tiles. If a paint request needs more tiles than the cache holds,
+   * it is also painted without tiles. A size of about twice the number of tiles in the
+   * visible area is a good choice.
+   * @param maxTiles The maximum number of cached tiles, 0 disables the cache.
+   */
+  public void setTileCacheSize(int maxTiles) {
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+    tileCacheSize = Math.max(maxTiles, 0);
+    tileCache = maxTiles > 0 ? new TileCache(maxTiles) : null;
+    tiledViewRect = null;
+    if (table != null) {
+      table.repaint();
+    }
+  }
+
+  /**
+   * @return The maximum number of cached tiles, 0 if tiles are not used.
+   */
+  public int getTileCacheSize() {
+    return tileCacheSize;
+  }
+
+  /**
+   * Enables a cache of the rendered cells in columns which could contain CellSpans.
+   * The images are keyed by CellSpan, renderer, value, selection and focus state and
+   * size, so a renderer is only called again when one of these changes. The cache is
+   * cleared on every TableModelEvent and every property change of the table.
+   * <p>
+   * Use this only for renderers which are expensive and whose output depends on
+   * nothing else, e.g. not on the row or a blinking animation.
+   * @param maxBytes The maximum size of the cached images in bytes, 0 disables the cache.
+   */
+  public void setRenderCacheSize(long maxBytes) {
+    renderCache = maxBytes > 0 ? new RenderCache(maxBytes) : null;
+  }
+
+  /**
+   * @return The maximum size of the cached images in bytes, 0 if the cache is disabled.
+   */
+  public long getRenderCacheSize() {
+    return renderCache == null ? 0 : renderCache.getMaxBytes();
+  }
+
+  private void clearRenderCache() {
+    if (renderCache != null) {
+      renderCache.clear();
+    }
+  }
+
+  private class RenderCacheInvalidator implements TableModelListener, PropertyChangeListener {
+    @Override
+    public void tableChanged(TableModelEvent e) {
+      clearRenderCache();
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+      if ("model".equals(evt.getPropertyName())) {
+        if (evt.getOldValue() != null) {
+          ((TableModel) evt.getOldValue()).removeTableModelListener(this);
+        }
+        if (evt.getNewValue() != null) {
+          ((TableModel) evt.getNewValue()).addTableModelListener(this);
+        }
+      }
+      clearRenderCache();
+    }
+  }
+
+  @Override
+  protected void installListeners() {
+    super.installListeners();
+    table.addPropertyChangeListener(renderCacheInvalidator);
+    table.getModel().addTableModelListener(renderCacheInvalidator);
+  }
+
+  @Override
+  protected void uninstallListeners() {
+    super.uninstallListeners();
+    table.removePropertyChangeListener(renderCacheInvalidator);
+    table.getModel().removeTableModelListener(renderCacheInvalidator);
+    clearRenderCache();
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+    tiledViewRect = null;
+  }
+
+  @Override
+  public void installUI(JComponent c) {
+    super.installUI(c);
+    // replaces the TransferHandler installed by BasicTableUI
+    TransferHandler th = table.getTransferHandler();
+    if (th == null || th instanceof UIResource) {
+      table.setTransferHandler(new SpanTableTransferHandler());
+    }
+  }
 
   @Override
   public void paint(Graphics g, JComponent c) {
+    SpanTableMetrics frameMetrics = metrics;
+    if (frameMetrics == null) {
+      paintFrame(g);
+      return;
+    }
+    long start = System.nanoTime();
+    statistics = new PaintStatistics();
+    Rectangle clip = g.getClipBounds();
+    if (clip != null) {
+      statistics.dirtyArea = (long) clip.width * clip.height;
+    }
+    try {
+      paintFrame(g);
+    } finally {
+      PaintStatistics frameStatistics = statistics;
+      statistics = null;
+      frameStatistics.paintNanos = System.nanoTime() - start;
+      frameMetrics.framePainted(frameStatistics);
+    }
+  }
+
+  private void paintFrame(Graphics g) {
+    if (tileCache != null && table instanceof SpanTable && g instanceof Graphics2D &&
+        !table.isPaintingForPrint() && g.getClipBounds() != null) {
+      paintTiles((Graphics2D) g);
+    } else {
+      paintTable(g);
+    }
+    paintDropLines(g);
+  }
+
+  /*
+   * Paints the clip from tiles, rendering only new and invalidated tiles.
+   */
+  private void paintTiles(Graphics2D g) {
+    invalidateEdgeSpanTiles();
+    // keep only the tiles around the visible area, so repaint requests limited to
+    // the cached area reach all cached tiles
+    Rectangle keptArea = table.getVisibleRect();
+    keptArea.grow(2 * TileCache.TILE_SIZE, 2 * TileCache.TILE_SIZE);
+    tileCache.retain(keptArea);
+    Rectangle clip = g.getClipBounds().intersection(new Rectangle(0, 0, table.getWidth(), table.getHeight()));
+    if (clip.isEmpty()) {
+      return;
+    }
+    int size = TileCache.TILE_SIZE;
+    int firstTileX = clip.x / size;
+    int firstTileY = clip.y / size;
+    int lastTileX = (clip.x + clip.width - 1) / size;
+    int lastTileY = (clip.y + clip.height - 1) / size;
+    if ((long) (lastTileX - firstTileX + 1) * (lastTileY - firstTileY + 1) > tileCacheSize) {
+      // the tiles would evict each other
+      paintTable(g);
+      return;
+    }
+    GraphicsConfiguration configuration = g.getDeviceConfiguration();
+    AffineTransform transform = g.getTransform();
+    double scaleX = transform.getScaleX();
+    double scaleY = transform.getScaleY();
+    int width = (int) Math.ceil(size * scaleX);
+    int height = (int) Math.ceil(size * scaleY);
+    for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+      for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+        TileCache.Tile tile = tileCache.get(tileX, tileY);
+        Rectangle tileBounds = tile.getBounds();
+        VolatileImage image;
+        int attempts = 0;
+        do {
+          if (tileCache.validate(tile, configuration, width, height)) {
+            if (statistics != null) {
+              statistics.renderedTiles++;
+            }
+            renderTile(g, tile.getImage(), tileBounds, scaleX, scaleY);
+          } else if (statistics != null && attempts == 0) {
+            statistics.tileHits++;
+          }
+          image = tile.getImage();
+          g.drawImage(image, tileBounds.x, tileBounds.y, size, size, null);
+        } while (image.contentsLost() && ++attempts < 3);
+      }
+    }
+  }
+
+  private void renderTile(Graphics2D g, VolatileImage image, Rectangle tileBounds, double scaleX, double scaleY) {
+    Graphics2D tileGraphics = image.createGraphics();
+    try {
+      tileGraphics.setComposite(AlphaComposite.Clear);
+      tileGraphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+      tileGraphics.setComposite(AlphaComposite.SrcOver);
+      tileGraphics.setRenderingHints(g.getRenderingHints());
+      tileGraphics.scale(scaleX, scaleY);
+      tileGraphics.translate(-tileBounds.x, -tileBounds.y);
+      tileGraphics.setClip(tileBounds);
+      paintTable(tileGraphics);
+    } finally {
+      tileGraphics.dispose();
+    }
+  }
+
+  /*
+   * The value of a CellSpan cut by the upper or left edge of the viewport moves with
+   * the edge, so the tiles of these CellSpans are invalidated whenever the edge moves.
+   */
+  private void invalidateEdgeSpanTiles() {
+    Container parent = SwingUtilities.getUnwrappedParent(table);
+    if (!(parent instanceof JViewport)) {
+      tiledViewRect = null;
+      return;
+    }
+    Rectangle viewRect = ((JViewport) parent).getViewRect();
+    ISpanTableModel spanModel = SpanTableHelper.getSpanModel(table);
+    if (spanModel != null && tiledViewRect != null && !tiledViewRect.getLocation().equals(viewRect.getLocation())) {
+      for (Rectangle edgeRect : new Rectangle[]{tiledViewRect, viewRect}) {
+        for (CellSpan span : SpanTableHelper.getEdgeSpans(table, spanModel, edgeRect)) {
+          Rectangle spanRect = table.getCellRect(span.getStartRow(), span.getStartColumn(), true);
+          spanRect.add(table.getCellRect(span.getEndRow(), span.getEndColumn(), true));
+          tileCache.invalidate(spanRect.x, spanRect.y, spanRect.width, spanRect.height);
+        }
+      }
+    }
+    tiledViewRect = viewRect;
+  }
+
+  /**
+   * Extends the area to contain all cached tiles, which have to be invalidated by
+   * repaint requests even if they are not visible.
+   */
+  void addCachedArea(Rectangle area) {
+    TileCache cache = tileCache;
+    if (cache != null) {
+      cache.addBounds(area);
+    }
+  }
+
+  /**
+   * Marks the tiles intersecting the area as dirty. {@link SpanTable} calls this for
+   * every repaint request.
+   */
+  void invalidateTiles(int x, int y, int width, int height) {
+    TileCache cache = tileCache;
+    if (cache != null) {
+      cache.invalidate(x, y, width, height);
+    }
+  }
+
+  private void paintTable(Graphics g) {
     Rectangle clip = g.getClipBounds();
     Rectangle bounds = table.getBounds();
     // account for the fact that the graphics has already been translated
@@ -65,8 +374,6 @@ public class SpanTableUi extends BasicTableUI {
         // this check prevents us from painting the entire table
         // when the clip doesn't intersect our bounds at all
         !bounds.intersects(clip)) {
-
-      paintDropLines(g);
       return;
     }
 
@@ -136,13 +443,55 @@ public class SpanTableUi extends BasicTableUI {
       }
     }
 
+    geometry.update(table, rMin, rMax, cMin, cMax);
+    ISpanTableModel spanModel = SpanTableHelper.getSpanModel(table);
+    if (spanModel != null) {
+      collectCellSpans(spanModel, rMin, rMax, cMin, cMax);
+    }
+
     // Paint the grid.
-    paintGrid(g, rMin, rMax, cMin, cMax);
+    paintGrid(g, spanModel, rMin, rMax, cMin, cMax);
 
     // Paint the cells.
-    paintCells(g, rMin, rMax, cMin, cMax);
+    paintCells(g, spanModel, rMin, rMax, cMin, cMax);
 
-    paintDropLines(g);
+    paintedSpans.clear();
+  }
+
+  /*
+   * Collects the CellSpans intersecting the painted rows and columns into paintedSpans
+   * and marks their cells in cellFlags.
+   */
+  private void collectCellSpans(ISpanTableModel model, int rMin, int rMax, int cMin, int cMax) {
+    int columnCount = cMax - cMin + 1;
+    int cellCount = (rMax - rMin + 1) * columnCount;
+    if (cellFlags.length < cellCount) {
+      cellFlags = new byte[cellCount];
+    } else {
+      Arrays.fill(cellFlags, 0, cellCount, (byte) 0);
+    }
+    if (statistics != null) {
+      statistics.spanQueries++;
+    }
+    for (CellSpan span : model.getIntersectingCellSpans(CellSpan.fromStartEnd(rMin, cMin, rMax, cMax))) {
+      int firstRow = Math.max(span.getStartRow(), rMin);
+      int lastRow = Math.min(span.getEndRow(), rMax);
+      int firstColumn = Math.max(span.getStartColumn(), cMin);
+      int lastColumn = Math.min(span.getEndColumn(), cMax);
+      if (cellFlags[(firstRow - rMin) * columnCount + firstColumn - cMin] != 0) {
+        // a model may return a CellSpan spanning multiple columns more than once
+        continue;
+      }
+      paintedSpans.add(span);
+      for (int row = firstRow; row <= lastRow; row++) {
+        int offset = (row - rMin) * columnCount - cMin;
+        byte flags = row < span.getEndRow() ? COVERED | NO_BOTTOM_LINE : COVERED;
+        Arrays.fill(cellFlags, offset + firstColumn, offset + lastColumn + 1, (byte) (flags | NO_RIGHT_LINE));
+        if (lastColumn == span.getEndColumn()) {
+          cellFlags[offset + lastColumn] = flags;
+        }
+      }
+    }
   }
 
   private void paintDropLines(Graphics g) {
@@ -279,60 +628,88 @@ public class SpanTableUi extends BasicTableUI {
    * horizontal lines if <code>getShowHorizontalLines()</code>
    * returns true.
    */
-  private void paintGrid(Graphics g, int rMin, int rMax, int cMin, int cMax) {
+  private void paintGrid(Graphics g, ISpanTableModel spanModel, int rMin, int rMax, int cMin, int cMax) {
     g.setColor(table.getGridColor());
 
     Rectangle minCell = table.getCellRect(rMin, cMin, true);
     Rectangle maxCell = table.getCellRect(rMax, cMax, true);
     Rectangle damagedArea = minCell.union(maxCell);
 
-    if (table.getModel() instanceof ISpanTableModel) {
-      paintGridWithSpans(g, (ISpanTableModel) table.getModel(), rMin, rMax, cMin, cMax);
+    if (spanModel != null) {
+      paintGridWithSpans(g, rMin, rMax, cMin, cMax);
     } else {
       paintCompleteGrid(g, damagedArea, rMin, rMax, cMin, cMax);
     }
 
   }
 
+  /*
+   * Paints the grid lines around the cells and CellSpans. Adjacent line segments are
+   * merged into runs, which are painted with one call each. The lines around a
+   * CellSpan are painted even if the table does not show lines.
+   */
   private void paintGridWithSpans(
       Graphics g,
-      ISpanTableModel model,
       int rMin,
       int rMax,
       int cMin,
       int cMax) {
-    if (!(table.getShowHorizontalLines() ||
-        table.getShowVerticalLines())) {
+    boolean showHorizontalLines = table.getShowHorizontalLines();
+    boolean showVerticalLines = table.getShowVerticalLines();
+    if (!(showHorizontalLines || showVerticalLines)) {
       return;
     }
+    int columnCount = cMax - cMin + 1;
+    int rowCount = rMax - rMin + 1;
+
+    for (int r = 0; r < rowCount; r++) {
+      int offset = r * columnCount;
+      int runStart = -1;
+      for (int c = 0; c <= columnCount; c++) {
+        boolean hasLine = c < columnCount && hasLine(cellFlags[offset + c], NO_BOTTOM_LINE, showHorizontalLines);
+        if (hasLine && runStart < 0) {
+          runStart = c;
+        } else if (!hasLine && runStart >= 0) {
+          int x1 = geometry.getCellX(cMin + runStart);
+          int x2 = geometry.getCellX(cMin + c - 1) + geometry.getCellWidth(cMin + c - 1);
+          SpanTableUi.drawHLine(g, x1, x2, geometry.getCellY(rMin + r) + geometry.getCellHeight(rMin + r));
+          countGridLine();
+          runStart = -1;
+        }
+      }
+    }
 
-    for (int row = rMin; row <= rMax; row++) {
-      for (int col = cMin; col <= cMax; col++) {
-        Rectangle cell = table.getCellRect(row, col, false);
-        Optional<CellSpan> cellSpan = model.getCellSpanContaining(row, col);
-        if (cellSpan.isPresent()) {
-          CellSpan span = cellSpan.get();
-          if (row == span.getEndRow()) {
-            SpanTableUi.drawHLine(g, cell.x, cell.x + cell.width, cell.y + cell.height);
-          }
-
-          if (col == span.getEndColumn()) {
-            SpanTableUi.drawVLine(g, cell.x + cell.width, cell.y, cell.y + cell.height);
-          }
-
-        } else {
-          if (table.getShowHorizontalLines()) {
-            SpanTableUi.drawHLine(g, cell.x, cell.x + cell.width, cell.y + cell.height);
-          }
-
-          if (table.getShowVerticalLines()) {
-            SpanTableUi.drawVLine(g, cell.x + cell.width, cell.y, cell.y + cell.height);
-          }
+    for (int c = 0; c < columnCount; c++) {
+      int runStart = -1;
+      for (int r = 0; r <= rowCount; r++) {
+        boolean hasLine = r < rowCount && hasLine(cellFlags[r * columnCount + c], NO_RIGHT_LINE, showVerticalLines);
+        if (hasLine && runStart < 0) {
+          runStart = r;
+        } else if (!hasLine && runStart >= 0) {
+          SpanTableUi.drawVLine(g,
+              geometry.getCellX(cMin + c) + geometry.getCellWidth(cMin + c),
+              geometry.getCellY(rMin + runStart),
+              geometry.getCellY(rMin + r - 1) + geometry.getCellHeight(rMin + r - 1));
+          countGridLine();
+          runStart = -1;
         }
       }
     }
   }
 
+  private void countGridLine() {
+    if (statistics != null) {
+      statistics.gridLines++;
+    }
+  }
+
+  private static boolean hasLine(byte flags, byte noLine, boolean showLines) {
+    if (flags == 0) {
+      return showLines;
+    }
+    return (flags & noLine) == 0;
+  }
+
   private void paintCompleteGrid(
       Graphics g,
       Rectangle damagedArea,
@@ -346,6 +723,7 @@ public class SpanTableUi extends BasicTableUI {
       for (int row = rMin; row <= rMax; row++) {
         y += table.getRowHeight(row);
         SpanTableUi.drawHLine(g, damagedArea.x, tableWidth - 1, y - 1);
+        countGridLine();
       }
     }
     if (table.getShowVerticalLines()) {
@@ -358,6 +736,7 @@ public class SpanTableUi extends BasicTableUI {
           int w = cm.getColumn(column).getWidth();
           x += w;
           SpanTableUi.drawVLine(g, x - 1, 0, tableHeight - 1);
+          countGridLine();
         }
       } else {
         x = damagedArea.x;
@@ -365,6 +744,7 @@ public class SpanTableUi extends BasicTableUI {
           int w = cm.getColumn(column).getWidth();
           x += w;
           SpanTableUi.drawVLine(g, x - 1, 0, tableHeight - 1);
+          countGridLine();
         }
       }
     }
@@ -380,26 +760,29 @@ public class SpanTableUi extends BasicTableUI {
     return -1;
   }
 
-  private void paintCells(Graphics g, int rMin, int rMax, int cMin, int cMax) {
+  private void paintCells(Graphics g, ISpanTableModel tableModel, int rMin, int rMax, int cMin, int cMax) {
     JTableHeader header = table.getTableHeader();
     TableColumn draggedColumn = (header == null) ? null : header.getDraggedColumn();
 
     TableColumnModel cm = table.getColumnModel();
     int columnMargin = cm.getColumnMargin();
 
-    Rectangle cellRect;
+    Rectangle cellRect = this.cellRect;
     TableColumn aColumn;
     int columnWidth;
-    ISpanTableModel tableModel = null;
-    if (table.getModel() instanceof ISpanTableModel) {
-      tableModel = (ISpanTableModel) table.getModel();
-    }
     if (table.getComponentOrientation().isLeftToRight()) {
+      if (tableModel != null) {
+        paintCellSpans(g);
+      }
+      int columnCount = cMax - cMin + 1;
       for (int row = rMin; row <= rMax; row++) {
         for (int column = cMin; column <= cMax; column++) {
-          cellRect = table.getCellRect(row, column, false);
+          if (tableModel != null && cellFlags[(row - rMin) * columnCount + column - cMin] != 0) {
+            continue;
+          }
+          geometry.getCellRect(row, column, cellRect);
           if (tableModel != null && tableModel.containsSpans(column)) {
-            paintSpanColumnCell(tableModel, g, cellRect, row, column);
+            paintSingleCell(g, cellRect, row, column);
           } else {
             paintCell(g, cellRect, row, column);
           }
@@ -495,6 +878,9 @@ public class SpanTableUi extends BasicTableUI {
   }
 
   private void paintCell(Graphics g, Rectangle cellRect, int row, int column) {
+    if (statistics != null) {
+      statistics.paintedCells++;
+    }
     if (table.isEditing() && table.getEditingRow() == row &&
         table.getEditingColumn() == column) {
       Component component = table.getEditorComponent();
@@ -502,69 +888,164 @@ public class SpanTableUi extends BasicTableUI {
       component.validate();
     } else {
       TableCellRenderer renderer = table.getCellRenderer(row, column);
+      if (statistics != null) {
+        statistics.rendererCalls++;
+      }
       Component component = table.prepareRenderer(renderer, row, column);
       rendererPane.paintComponent(g, component, table, cellRect.x, cellRect.y,
           cellRect.width, cellRect.height, true);
     }
   }
 
-  private void paintSpanColumnCell(ISpanTableModel model, Graphics g, Rectangle realCellRect, int row, int column) {
-    Optional<CellSpan> span = model.getCellSpanContaining(row, column);
-    if (span.isPresent()) {
-      paintCellSpan(model, span.get(), g, realCellRect, row, column);
-    } else {
-      paintSingleCell(g, realCellRect, row, column);
-    }
-  }
-
-  private void paintCellSpan(ISpanTableModel model, CellSpan span, Graphics g, Rectangle realCellRect, int row, int column) {
-    Rectangle spanRect = SpanTableHelper.getCellRect(table, model, row, column, false);
-
+  private void paintCellSpans(Graphics g) {
+    // the value of a CellSpan is painted in its first visible cell
+    int rowMin = -1;
+    int colMin = -1;
     Container parent = SwingUtilities.getUnwrappedParent(table);
-    boolean isFirstCellInSpan = span.getStartRow() == row && span.getStartColumn() == column;
-    boolean isFirstInVisibleArea = false;
     if (parent instanceof JViewport) {
-      Rectangle viewRect = ((JViewport) parent).getViewRect();
+      Point viewPosition = ((JViewport) parent).getViewPosition();
+      rowMin = table.rowAtPoint(viewPosition);
+      colMin = table.columnAtPoint(viewPosition);
+    }
+    for (CellSpan span : paintedSpans) {
+      paintCellSpan(g, span.getStartRow(), span.getStartColumn(), span.getEndRow(), span.getEndColumn(), rowMin, colMin);
+    }
+  }
 
-      int rowMin = table.rowAtPoint(viewRect.getLocation());
-      int colMin = table.columnAtPoint(viewRect.getLocation());
-      isFirstInVisibleArea = (span.getStartRow() < rowMin && row == rowMin) ||
-          (span.getStartColumn() < colMin && column == colMin);
+  /*
+   * Paints a CellSpan. The background covers the whole CellSpan and the value is
+   * painted in the first visible cell of the CellSpan, both clipped to the painted
+   * area. So the result only depends on the position of the viewport and not on the
+   * painted area, which allows blitting while scrolling, see SpanTableViewport.
+   */
+  private void paintCellSpan(Graphics g, int startRow, int startColumn, int endRow, int endColumn, int rowMin, int colMin) {
+    if (statistics != null) {
+      statistics.paintedSpans++;
     }
-    if (!(isFirstCellInSpan || isFirstInVisibleArea)) {
-      // already painted
-      return;
+    int valueRow = startRow;
+    int valueColumn = startColumn;
+    if (rowMin <= endRow) {
+      valueRow = Math.max(startRow, rowMin);
+    }
+    if (colMin <= endColumn) {
+      valueColumn = Math.max(startColumn, colMin);
     }
-    var renderer = table.getCellRenderer(span.getStartRow(), span.getStartColumn());
+    // the value is clipped away unless its cell is painted
+    boolean paintValue = geometry.isPainted(valueRow, valueColumn);
+    Rectangle valueRect = cellRect;
+    if (paintValue) {
+      geometry.getCellRect(valueRow, valueColumn, valueRect);
+    } else {
+      valueRect.setBounds(table.getCellRect(valueRow, valueColumn, false));
+    }
+    geometry.getAreaRect(startRow, startColumn, endRow, endColumn, spanRect);
+    var renderer = table.getCellRenderer(startRow, startColumn);
 
-    Object value = table.getValueAt(span.getStartRow(), span.getStartColumn());
+    Object value = table.getValueAt(startRow, startColumn);
     boolean isSelected = false;
     boolean hasFocus = false;
     if (!table.isPaintingForPrint()) {
 
-      isSelected = span.getSpannedCells().stream()
-          .anyMatch(s -> table.isCellSelected(s[0], s[1]));
+      isSelected = SpanTableHelper.isAnyCellSelected(table, startRow, startColumn, endRow, endColumn);
 
-      var cellIsLead = span.contains(
-          table.getSelectionModel().getLeadSelectionIndex(),
-          table.getColumnModel().getSelectionModel().getLeadSelectionIndex()
-      );
+      int leadRow = table.getSelectionModel().getLeadSelectionIndex();
+      int leadColumn = table.getColumnModel().getSelectionModel().getLeadSelectionIndex();
+      var cellIsLead = leadRow >= startRow && leadRow <= endRow &&
+          leadColumn >= startColumn && leadColumn <= endColumn;
 
       hasFocus = cellIsLead && table.isFocusOwner();
     }
 
-    var component = renderer.getTableCellRendererComponent(table, value, isSelected, hasFocus, span.getStartRow(), span.getStartColumn());
-    if (!isSelected) {
-      component.setBackground(Color.WHITE);
+    if (renderCache != null && !table.isPaintingForPrint()) {
+      RenderCache.Entry entry = getRenderedCell(g, renderer, value, isSelected, hasFocus,
+          startRow, startColumn, endRow, endColumn, valueRect);
+      g.setColor(entry.getBackground());
+      g.fillRect(spanRect.x, spanRect.y, spanRect.width, spanRect.height);
+      if (paintValue) {
+        g.drawImage(entry.getImage(), valueRect.x, valueRect.y, valueRect.width, valueRect.height, null);
+      }
+      return;
     }
+    Component component = prepareSpanColumnRenderer(renderer, value, isSelected, hasFocus, startRow, startColumn);
     g.setColor(component.getBackground());
     g.fillRect(spanRect.x, spanRect.y, spanRect.width, spanRect.height);
-    rendererPane.paintComponent(g, component, table, realCellRect.x, realCellRect.y,
-        realCellRect.width, realCellRect.height, true);
+    if (paintValue) {
+      rendererPane.paintComponent(g, component, table, valueRect.x, valueRect.y,
+          valueRect.width, valueRect.height, true);
+    }
 
   }
 
+  private Component prepareSpanColumnRenderer(
+      TableCellRenderer renderer,
+      Object value,
+      boolean isSelected,
+      boolean hasFocus,
+      int row,
+      int column) {
+    if (statistics != null) {
+      statistics.rendererCalls++;
+    }
+    Component component = renderer.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+    // all cells in a column which could contain spans should be bg=white
+    if (!isSelected) {
+      component.setBackground(Color.WHITE);
+    }
+    return component;
+  }
+
+  /*
+   * Returns the cached image of the renderer for the cell or CellSpan. On a cache miss
+   * the renderer is painted into a new image matching the scale of the Graphics.
+   */
+  private RenderCache.Entry getRenderedCell(
+      Graphics g,
+      TableCellRenderer renderer,
+      Object value,
+      boolean isSelected,
+      boolean hasFocus,
+      int startRow,
+      int startColumn,
+      int endRow,
+      int endColumn,
+      Rectangle cellRect) {
+    AffineTransform transform = ((Graphics2D) g).getTransform();
+    double scaleX = transform.getScaleX();
+    double scaleY = transform.getScaleY();
+    RenderCache.Key key = new RenderCache.Key(renderer, value, isSelected, hasFocus,
+        startRow, startColumn, endRow, endColumn, cellRect.width, cellRect.height, scaleX, scaleY);
+    RenderCache.Entry entry = renderCache.get(key);
+    if (statistics != null) {
+      if (entry == null) {
+        statistics.renderCacheMisses++;
+      } else {
+        statistics.renderCacheHits++;
+      }
+    }
+    if (entry == null) {
+      Component component = prepareSpanColumnRenderer(renderer, value, isSelected, hasFocus, startRow, startColumn);
+      BufferedImage image = new BufferedImage(
+          Math.max((int) Math.ceil(cellRect.width * scaleX), 1),
+          Math.max((int) Math.ceil(cellRect.height * scaleY), 1),
+          BufferedImage.TYPE_INT_ARGB_PRE);
+      Graphics2D imageGraphics = image.createGraphics();
+      try {
+        imageGraphics.scale(scaleX, scaleY);
+        rendererPane.paintComponent(imageGraphics, component, table, 0, 0,
+            cellRect.width, cellRect.height, true);
+      } finally {
+        imageGraphics.dispose();
+      }
+      entry = new RenderCache.Entry(image, component.getBackground());
+      renderCache.put(key, entry);
+    }
+    return entry;
+  }
+
   private void paintSingleCell(Graphics g, Rectangle cellRect, int row, int column) {
+    if (statistics != null) {
+      statistics.paintedCells++;
+    }
     TableCellRenderer cellRenderer = table.getCellRenderer(row, column);
 
     Object value = table.getValueAt(row, column);
@@ -584,13 +1065,13 @@ public class SpanTableUi extends BasicTableUI {
       hasFocus = (rowIsLead && colIsLead) && table.isFocusOwner();
     }
 
-    Component component = cellRenderer.getTableCellRendererComponent(table, value,
-        isSelected, hasFocus,
-        row, column);
-    // all cells in a column which could contain spans should be bg=white
-    if (!isSelected) {
-      component.setBackground(Color.WHITE);
+    if (renderCache != null && !table.isPaintingForPrint()) {
+      RenderCache.Entry entry = getRenderedCell(g, cellRenderer, value, isSelected, hasFocus,
+          row, column, row, column, cellRect);
+      g.drawImage(entry.getImage(), cellRect.x, cellRect.y, cellRect.width, cellRect.height, null);
+      return;
     }
+    Component component = prepareSpanColumnRenderer(cellRenderer, value, isSelected, hasFocus, row, column);
     rendererPane.paintComponent(g, component, table, cellRect.x, cellRect.y, cellRect.width, cellRect.height, true);
   }
 
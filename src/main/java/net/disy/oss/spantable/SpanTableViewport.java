@@ -0,0 +1,71 @@
+package net.disy.oss.spantable;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JTable;
+import javax.swing.JViewport;
+
+/**
+ * A JViewport for tables containing CellSpans which keeps blitting enabled.
+ * <p>
+ * {@link SpanTableUi} paints the value of a CellSpan in its first visible cell. When
+ * scrolling, the blitted part of the view still shows the value at the old position.
+ * After every change of the view position this viewport repaints the visible part of
+ * the CellSpans cut by the old or the new upper or left edge. Everything else is
+ * blitted and only the newly exposed strips are painted.
+ * <p>
+ * Usage:
+ * <pre>
+ * var scrollPane = new JScrollPane();
+ * scrollPane.setViewport(new SpanTableViewport());
+ * scrollPane.setViewportView(table);
+ * </pre>
+ */
+public class SpanTableViewport extends JViewport {
+
+  @Override
+  public void setViewPosition(Point p) {
+    var view = getView();
+    if (!(view instanceof JTable) || getScrollMode() == SIMPLE_SCROLL_MODE) {
+      super.setViewPosition(p);
+      return;
+    }
+    var table = (JTable) view;
+    var oldViewRect = getViewRect();
+    super.setViewPosition(p);
+    var newViewRect = getViewRect();
+    var model = SpanTableHelper.getSpanModel(table);
+    if (model == null || oldViewRect.getLocation().equals(newViewRect.getLocation())) {
+      return;
+    }
+    var dirtyRect = new Rectangle();
+    addEdgeSpans(table, model, oldViewRect, newViewRect, dirtyRect);
+    addEdgeSpans(table, model, newViewRect, newViewRect, dirtyRect);
+    if (!dirtyRect.isEmpty()) {
+      // paint right away and only once, so the blitted value is never shown
+      table.paintImmediately(dirtyRect);
+    }
+  }
+
+  /**
+   * Adds the visible parts of the CellSpans cut by the upper or left edge of edgeRect
+   * to dirtyRect.
+   */
+  private static void addEdgeSpans(
+      JTable table, ISpanTableModel model, Rectangle edgeRect, Rectangle viewRect, Rectangle dirtyRect) {
+    for (var span : SpanTableHelper.getEdgeSpans(table, model, edgeRect)) {
+      var spanRect = table.getCellRect(span.getStartRow(), span.getStartColumn(), true);
+      spanRect.add(table.getCellRect(span.getEndRow(), span.getEndColumn(), true));
+      var visible = spanRect.intersection(viewRect);
+      if (visible.isEmpty()) {
+        continue;
+      }
+      if (dirtyRect.isEmpty()) {
+        dirtyRect.setBounds(visible);
+      } else {
+        dirtyRect.add(visible);
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package net.disy.oss.spantable;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed size tiles of a rendered component, kept as VolatileImages.
+ * <p>
+ * A tile is identified by its column and row in the grid of tiles. Tiles are marked
+ * dirty when the area they cover is invalidated and dropped in least recently used
+ * order when there are more than <code>maxTiles</code>. The methods may be called
+ * from any thread, since repaint requests may come from any thread.
+ */
+final class TileCache {
+  static final int TILE_SIZE = 256;
+
+  private final Map<Long, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+  private final int maxTiles;
+
+  TileCache(int maxTiles) {
+    this.maxTiles = maxTiles;
+  }
+
+  static long key(int tileX, int tileY) {
+    return ((long) tileY << 32) | (tileX & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the tile, which has to be rendered again if it is new or dirty.
+   */
+  synchronized Tile get(int tileX, int tileY) {
+    var key = key(tileX, tileY);
+    var tile = tiles.get(key);
+    if (tile == null) {
+      tile = new Tile(tileX, tileY);
+      tiles.put(key, tile);
+      Iterator<Tile> iterator = tiles.values().iterator();
+      while (tiles.size() > maxTiles) {
+        iterator.next().flush();
+        iterator.remove();
+      }
+    }
+    return tile;
+  }
+
+  /**
+   * Marks all tiles intersecting the area as dirty.
+   */
+  synchronized void invalidate(int x, int y, int width, int height) {
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    var area = new Rectangle(x, y, width, height);
+    for (var tile : tiles.values()) {
+      if (tile.getBounds().intersects(area)) {
+        tile.dirty = true;
+      }
+    }
+  }
+
+  /**
+   * Drops all tiles not intersecting the area.
+   */
+  synchronized void retain(Rectangle area) {
+    var iterator = tiles.values().iterator();
+    while (iterator.hasNext()) {
+      var tile = iterator.next();
+      if (!tile.getBounds().intersects(area)) {
+        tile.flush();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Extends the area to contain all tiles.
+   */
+  synchronized void addBounds(Rectangle area) {
+    for (var tile : tiles.values()) {
+      var bounds = tile.getBounds();
+      if (area.isEmpty()) {
+        area.setBounds(bounds);
+      } else {
+        area.add(bounds);
+      }
+    }
+  }
+
+  synchronized void clear() {
+    for (var tile : tiles.values()) {
+      tile.flush();
+    }
+    tiles.clear();
+  }
+
+  synchronized int size() {
+    return tiles.size();
+  }
+
+  /**
+   * Makes sure the image of the tile is usable with the GraphicsConfiguration and has
+   * the given size in pixels.
+   * @return True if the tile has to be rendered.
+   */
+  synchronized boolean validate(Tile tile, GraphicsConfiguration configuration, int width, int height) {
+    var image = tile.image;
+    var status = VolatileImage.IMAGE_INCOMPATIBLE;
+    if (image != null && image.getWidth() == width && image.getHeight() == height) {
+      // validate only once, a second call would report a restored image as ok
+      status = image.validate(configuration);
+    }
+    if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+      tile.flush();
+      tile.image = configuration.createCompatibleVolatileImage(width, height, Transparency.TRANSLUCENT);
+      // a new image may report its first surface as restored, it is rendered anyway
+      tile.image.validate(configuration);
+      tile.dirty = true;
+    } else if (status == VolatileImage.IMAGE_RESTORED) {
+      tile.dirty = true;
+    }
+    var result = tile.dirty;
+    // cleared before rendering, so an invalidation while rendering is not lost
+    tile.dirty = false;
+    return result;
+  }
+
+  static final class Tile {
+    private final int tileX;
+    private final int tileY;
+    private VolatileImage image;
+    private boolean dirty = true;
+
+    private Tile(int tileX, int tileY) {
+      this.tileX = tileX;
+      this.tileY = tileY;
+    }
+
+    Rectangle getBounds() {
+      return new Rectangle(tileX * TILE_SIZE, tileY * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    VolatileImage getImage() {
+      return image;
+    }
+
+    private void flush() {
+      if (image != null) {
+        image.flush();
+        image = null;
+      }
+    }
+  }
+}
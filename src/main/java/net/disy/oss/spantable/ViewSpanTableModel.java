@@ -0,0 +1,177 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import javax.swing.JTable;
+
+/**
+ * Translates the CellSpans of the ISpanTableModel of a JTable from model to view
+ * coordinates, taking the <code>RowSorter</code> and the order of the columns in the
+ * <code>TableColumnModel</code> into account.
+ * <p>
+ * A CellSpan of the model whose rows are not adjacent in the view anymore is split
+ * into one CellSpan per run of adjacent rows. The same holds for columns.
+ * <p>
+ * As long as the table has no RowSorter and the columns are in model order all calls
+ * are passed directly to the model. Otherwise the CellSpans in view coordinates are
+ * derived in one pass over the view rows and stored in a {@link PackedSpanTableModel}.
+ * This index is reused until {@link #invalidate()} is called, which has to happen
+ * whenever the sort order, the filter, the column order or the CellSpans change.
+ * {@link SpanTable} does this automatically. The index is not updated incrementally,
+ * every invalidation derives it again in O(n) for n view rows per column with CellSpans.
+ * SpanTable therefore keeps it when only cells of columns without CellSpans are updated.
+ */
+public class ViewSpanTableModel implements ISpanTableModel {
+  private final JTable table;
+  private ISpanTableModel viewSpans;
+
+  /**
+   * @param table The table whose model is an ISpanTableModel.
+   */
+  public ViewSpanTableModel(JTable table) {
+    this.table = table;
+  }
+
+  /**
+   * Discards the CellSpans in view coordinates. They are derived again on the next query.
+   */
+  public void invalidate() {
+    viewSpans = null;
+  }
+
+  private ISpanTableModel getViewSpans() {
+    if (viewSpans == null) {
+      var model = (ISpanTableModel) table.getModel();
+      viewSpans = isIdentity() ? model : new PackedSpanTableModel(
+          deriveViewSpans(model),
+          spanColumns(model));
+    }
+    return viewSpans;
+  }
+
+  /**
+   * @return True if view and model coordinates of the table are the same.
+   */
+  public boolean isIdentity() {
+    if (table.getRowSorter() != null) {
+      return false;
+    }
+    for (int column = 0; column < table.getColumnCount(); column++) {
+      if (table.convertColumnIndexToModel(column) != column) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int[] spanColumns(ISpanTableModel model) {
+    var columns = new ArrayList<Integer>();
+    for (int column = 0; column < table.getColumnCount(); column++) {
+      if (model.containsSpans(table.convertColumnIndexToModel(column))) {
+        columns.add(column);
+      }
+    }
+    return columns.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private List<CellSpan> deriveViewSpans(ISpanTableModel model) {
+    var result = new ArrayList<CellSpan>();
+    var rowCount = table.getRowCount();
+    var columnCount = table.getColumnCount();
+    for (int column = 0; column < columnCount; column++) {
+      var modelColumn = table.convertColumnIndexToModel(column);
+      if (!model.containsSpans(modelColumn)) {
+        continue;
+      }
+      var row = 0;
+      while (row < rowCount) {
+        var spanIndex = model.findSpanIndex(table.convertRowIndexToModel(row), modelColumn);
+        if (spanIndex == NO_SPAN) {
+          row++;
+          continue;
+        }
+        var startRow = model.getSpanStartRow(spanIndex);
+        var endRow = model.getSpanEndRow(spanIndex);
+        var startColumn = model.getSpanStartColumn(spanIndex);
+        var endColumn = model.getSpanEndColumn(spanIndex);
+        var firstRow = row;
+        row++;
+        while (row < rowCount) {
+          var modelRow = table.convertRowIndexToModel(row);
+          if (modelRow < startRow || modelRow > endRow) {
+            break;
+          }
+          row++;
+        }
+        var lastRow = row - 1;
+        if (column > 0 && isBetween(table.convertColumnIndexToModel(column - 1), startColumn, endColumn)) {
+          // already added for the column on the left
+          continue;
+        }
+        var lastColumn = column;
+        while (lastColumn + 1 < columnCount &&
+            isBetween(table.convertColumnIndexToModel(lastColumn + 1), startColumn, endColumn)) {
+          lastColumn++;
+        }
+        if (lastRow > firstRow || lastColumn > column) {
+          result.add(CellSpan.fromStartEnd(firstRow, column, lastRow, lastColumn));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isBetween(int value, int start, int end) {
+    return value >= start && value <= end;
+  }
+
+  @Override
+  public Optional<CellSpan> getCellSpanContaining(int row, int column) {
+    return getViewSpans().getCellSpanContaining(row, column);
+  }
+
+  @Override
+  public List<CellSpan> getIntersectingCellSpans(CellSpan cellSpan) {
+    return getViewSpans().getIntersectingCellSpans(cellSpan);
+  }
+
+  @Override
+  public boolean containsSpans(int column) {
+    if (column < 0 || column >= table.getColumnCount()) {
+      return false;
+    }
+    return ((ISpanTableModel) table.getModel()).containsSpans(table.convertColumnIndexToModel(column));
+  }
+
+  @Override
+  public long findSpanIndex(int row, int column) {
+    return getViewSpans().findSpanIndex(row, column);
+  }
+
+  @Override
+  public CellSpan getCellSpan(long spanIndex) {
+    return getViewSpans().getCellSpan(spanIndex);
+  }
+
+  @Override
+  public int getSpanStartRow(long spanIndex) {
+    return getViewSpans().getSpanStartRow(spanIndex);
+  }
+
+  @Override
+  public int getSpanStartColumn(long spanIndex) {
+    return getViewSpans().getSpanStartColumn(spanIndex);
+  }
+
+  @Override
+  public int getSpanEndRow(long spanIndex) {
+    return getViewSpans().getSpanEndRow(spanIndex);
+  }
+
+  @Override
+  public int getSpanEndColumn(long spanIndex) {
+    return getViewSpans().getSpanEndColumn(spanIndex);
+  }
+}
@@ -1,5 +1,6 @@
 package net.disy.oss.spantable;
 
+import java.util.ArrayList;
 
 import org.junit.Test;
 
@@ -21,4 +22,11 @@ public class CellSpanTest {
         assertThat(first.intersects(second))
                 .isTrue();
     }
+
+    @Test
+    public void iteratesAllCells() {
+        var cells = new ArrayList<String>();
+        new CellSpan(1, 2, 2, 2).forEachCell((row, column) -> cells.add(row + ":" + column));
+        assertThat(cells).containsExactly("1:2", "1:3", "2:2", "2:3");
+    }
 }
@@ -0,0 +1,146 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EqualValueSpanTableModelTest {
+
+    private static DefaultTableModel createTableModel() {
+        return new DefaultTableModel(new Object[][]{
+                {"foo", "bar", "0"},
+                {"foo", "bar", "1"},
+                {"foo", "asdf", "2"},
+                {"foo2", "asdf", "3"},
+                {"foo2", "asdf", "4"},
+                {"foo3", "bar", "5"},
+        }, new Object[]{"A", "B", "C"});
+    }
+
+    @Test
+    public void mergesEqualValuesWithinParentGroups() {
+        var model = new EqualValueSpanTableModel(createTableModel(), new int[]{0, 1});
+        assertThat(model.getCellSpanContaining(1, 0)).contains(CellSpan.fromStartEnd(0, 0, 2, 0));
+        assertThat(model.getCellSpanContaining(0, 1)).contains(CellSpan.fromStartEnd(0, 1, 1, 1));
+        // "asdf" in row 2 belongs to another group in column 0 than rows 3 and 4
+        assertThat(model.getCellSpanContaining(2, 1)).isEmpty();
+        assertThat(model.getCellSpanContaining(4, 1)).contains(CellSpan.fromStartEnd(3, 1, 4, 1));
+        assertThat(model.getCellSpanContaining(5, 0)).isEmpty();
+        assertThat(model.getCellSpanContaining(0, 2)).isEmpty();
+        assertThat(model.getIntersectingCellSpans(new CellSpan(1, 0, 3, 3))).containsExactlyInAnyOrder(
+                CellSpan.fromStartEnd(0, 0, 2, 0),
+                CellSpan.fromStartEnd(3, 0, 4, 0),
+                CellSpan.fromStartEnd(0, 1, 1, 1),
+                CellSpan.fromStartEnd(3, 1, 4, 1));
+    }
+
+    @Test
+    public void updatesSpansOnTableModelEvents() {
+        var tableModel = createTableModel();
+        var model = new EqualValueSpanTableModel(tableModel, new int[]{0, 1});
+        var events = new ArrayList<SpanModelEvent>();
+        model.addSpanModelListener(events::add);
+        assertThat(model.getCellSpanContaining(1, 0)).contains(CellSpan.fromStartEnd(0, 0, 2, 0));
+        assertThat(model.getCellSpanContaining(4, 0)).contains(CellSpan.fromStartEnd(3, 0, 4, 0));
+
+        tableModel.setValueAt("foo", 3, 0);
+        assertThat(model.getCellSpanContaining(4, 0)).isEmpty();
+        assertThat(model.getCellSpanContaining(3, 0)).contains(CellSpan.fromStartEnd(0, 0, 3, 0));
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getArea()).isEqualTo(CellSpan.fromStartEnd(0, 0, 4, 1));
+
+        tableModel.insertRow(0, new Object[]{"foo", "bar", "new"});
+        assertThat(model.getCellSpanContaining(0, 0)).contains(CellSpan.fromStartEnd(0, 0, 4, 0));
+        assertThat(model.getCellSpanContaining(0, 1)).contains(CellSpan.fromStartEnd(0, 1, 2, 1));
+
+        tableModel.removeRow(0);
+        tableModel.removeRow(0);
+        assertThat(model.getCellSpanContaining(0, 0)).contains(CellSpan.fromStartEnd(0, 0, 2, 0));
+        assertThat(model.getCellSpanContaining(0, 1)).isEmpty();
+    }
+
+    @Test
+    public void comparesRowsOfLargeGroupsOnlyOnce() {
+        var reads = new int[1];
+        var tableModel = new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return 30_000;
+            }
+
+            @Override
+            public int getColumnCount() {
+                return 1;
+            }
+
+            @Override
+            public Object getValueAt(int row, int column) {
+                reads[0]++;
+                return row / 10_000;
+            }
+        };
+        var model = new EqualValueSpanTableModel(tableModel, new int[]{0});
+        assertThat(model.getCellSpanContaining(5_000, 0)).contains(CellSpan.fromStartEnd(0, 0, 9_999, 0));
+        assertThat(model.getCellSpanContaining(25_000, 0)).contains(CellSpan.fromStartEnd(20_000, 0, 29_999, 0));
+        var firstReads = reads[0];
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(model.getCellSpanContaining(100 + i, 0)).contains(CellSpan.fromStartEnd(0, 0, 9_999, 0));
+            assertThat(model.getCellSpanContaining(29_000 - i, 0)).contains(CellSpan.fromStartEnd(20_000, 0, 29_999, 0));
+        }
+        assertThat(reads[0]).isEqualTo(firstReads);
+    }
+
+    @Test
+    public void agreesWithBruteForceAfterRandomChanges() {
+        var random = new Random(5);
+        var tableModel = new DefaultTableModel(0, 2);
+        for (int row = 0; row < 500; row++) {
+            // long runs in the first column reach over several chunks
+            tableModel.addRow(new Object[]{row / 97 % 2, random.nextInt(2)});
+        }
+        var model = new EqualValueSpanTableModel(tableModel, new int[]{0, 1});
+        for (int i = 0; i < 100; i++) {
+            var row = random.nextInt(tableModel.getRowCount());
+            switch (random.nextInt(3)) {
+                case 0:
+                    tableModel.setValueAt(random.nextInt(2), row, random.nextInt(2));
+                    break;
+                case 1:
+                    tableModel.insertRow(row, new Object[]{random.nextInt(2), random.nextInt(2)});
+                    break;
+                default:
+                    tableModel.removeRow(row);
+                    break;
+            }
+            var probe = random.nextInt(tableModel.getRowCount());
+            for (int column = 0; column < 2; column++) {
+                var start = probe;
+                while (start > 0 && equalUpTo(tableModel, start - 1, start, column)) {
+                    start--;
+                }
+                var end = probe;
+                while (end + 1 < tableModel.getRowCount() && equalUpTo(tableModel, end, end + 1, column)) {
+                    end++;
+                }
+                var expected = start == end ? null : CellSpan.fromStartEnd(start, column, end, column);
+                assertThat(model.getCellSpanContaining(probe, column).orElse(null)).isEqualTo(expected);
+            }
+        }
+    }
+
+    private static boolean equalUpTo(DefaultTableModel tableModel, int row, int otherRow, int lastColumn) {
+        for (int column = 0; column <= lastColumn; column++) {
+            if (!tableModel.getValueAt(row, column).equals(tableModel.getValueAt(otherRow, column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
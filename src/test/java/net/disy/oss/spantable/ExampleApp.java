@@ -27,13 +27,9 @@ public class ExampleApp {
                 model));
         table.setUI(new SpanTableUi());
         var scrollPane = new JScrollPane();
+        // repaints the CellSpans at the edges of the visible region while blitting
+        scrollPane.setViewport(new SpanTableViewport());
         scrollPane.setViewportView(table);
-        // If we don't do this BLIT_SCROLL_MODE is used.
-        // When a CellSpan begins before the visible region we render it's value at the beginning
-        // of the visible region. When we scroll now upwards the old visible region is blit accordingly,
-        // leading to render artifacts.
-        // This can be detrimental to scroll perf and should maybe be configurable.
-        scrollPane.getViewport().setScrollMode(JViewport.SIMPLE_SCROLL_MODE);
         return scrollPane;
     }
 
@@ -0,0 +1,51 @@
+package net.disy.oss.spantable;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntervalTreeSpanTableModelTest {
+
+    @Test
+    public void findsCellSpanContainingCell() {
+        var spans = List.of(new CellSpan(0, 0, 2, 2), new CellSpan(5, 1, 10, 1));
+        var model = new IntervalTreeSpanTableModel(spans, new int[]{0, 1});
+        assertThat(model.getCellSpanContaining(1, 1)).contains(spans.get(0));
+        assertThat(model.getCellSpanContaining(14, 1)).contains(spans.get(1));
+        assertThat(model.getCellSpanContaining(15, 1)).isEmpty();
+        assertThat(model.getCellSpanContaining(2, 0)).isEmpty();
+    }
+
+    @Test
+    public void findsSpanIndexOfCell() {
+        var model = new IntervalTreeSpanTableModel(List.of(new CellSpan(5, 1, 10, 2)), new int[]{1, 2});
+        var spanIndex = model.findSpanIndex(14, 2);
+        assertThat(spanIndex).isNotEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(model.getSpanStartRow(spanIndex)).isEqualTo(5);
+        assertThat(model.getSpanStartColumn(spanIndex)).isEqualTo(1);
+        assertThat(model.getSpanEndRow(spanIndex)).isEqualTo(14);
+        assertThat(model.getSpanEndColumn(spanIndex)).isEqualTo(2);
+        assertThat(model.findSpanIndex(15, 2)).isEqualTo(ISpanTableModel.NO_SPAN);
+    }
+
+    @Test
+    public void agreesWithBruteForceOnRandomSpans() {
+        var random = new Random(42);
+        var spans = RandomSpans.create(random);
+        var model = new IntervalTreeSpanTableModel(spans, RandomSpans.ALL_COLUMNS);
+        for (int row = 0; row < RandomSpans.ROWS; row++) {
+            for (int column = 0; column < RandomSpans.COLUMNS; column++) {
+                assertThat(model.getCellSpanContaining(row, column).orElse(null))
+                        .isSameAs(RandomSpans.containing(spans, row, column));
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            var query = RandomSpans.randomQuery(random);
+            assertThat(model.getIntersectingCellSpans(query))
+                    .containsExactlyInAnyOrderElementsOf(RandomSpans.intersecting(spans, query));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazySpanTableModelTest {
+    private static final List<CellSpan> SPANS = List.of(
+            CellSpan.fromStartEnd(2, 0, 5, 0),
+            CellSpan.fromStartEnd(8, 0, 13, 1),
+            CellSpan.fromStartEnd(25, 1, 26, 1));
+
+    private final Map<Integer, CompletableFuture<List<CellSpan>>> loads = new HashMap<>();
+
+    private LazySpanTableModel createModel(int maxBlocks) {
+        return new LazySpanTableModel((firstRow, lastRow) -> {
+            var future = new CompletableFuture<List<CellSpan>>();
+            loads.put(firstRow, future);
+            return future;
+        }, 10, maxBlocks, new int[]{0, 1});
+    }
+
+    private void complete(int firstRow) throws Exception {
+        var result = new ArrayList<CellSpan>();
+        for (var span : SPANS) {
+            if (span.getStartRow() < firstRow + 10 && span.getEndRow() >= firstRow) {
+                result.add(span);
+            }
+        }
+        loads.remove(firstRow).complete(result);
+        // the block is handed over to the event dispatch thread
+        SwingUtilities.invokeAndWait(() -> {
+        });
+    }
+
+    @Test
+    public void loadsBlocksOnDemand() throws Exception {
+        var model = createModel(10);
+        var events = new ArrayList<SpanModelEvent>();
+        model.addSpanModelListener(events::add);
+
+        assertThat(model.findSpanIndex(3, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(model.findSpanIndex(4, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(loads.keySet()).containsExactly(0);
+        assertThat(model.isLoaded(3)).isFalse();
+
+        complete(0);
+        assertThat(model.isLoaded(3)).isTrue();
+        assertThat(model.getCellSpanContaining(3, 0)).contains(CellSpan.fromStartEnd(2, 0, 5, 0));
+        assertThat(model.getCellSpanContaining(9, 1)).contains(CellSpan.fromStartEnd(8, 0, 13, 1));
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getArea()).isEqualTo(CellSpan.fromStartEnd(0, 0, 13, 1));
+        // the second block is requested, but not loaded yet
+        assertThat(model.getCellSpanContaining(12, 1)).isEmpty();
+        assertThat(loads.keySet()).containsExactly(10);
+    }
+
+    @Test
+    public void returnsSpansCrossingBlocksOnce() throws Exception {
+        var model = createModel(10);
+        assertThat(model.getIntersectingCellSpans(CellSpan.fromStartEnd(0, 0, 29, 1))).isEmpty();
+        assertThat(loads.keySet()).containsExactlyInAnyOrder(0, 10, 20);
+        complete(0);
+        complete(10);
+        complete(20);
+
+        assertThat(model.getIntersectingCellSpans(CellSpan.fromStartEnd(0, 0, 29, 1))).containsExactlyInAnyOrderElementsOf(SPANS);
+        var spanIndex = model.findSpanIndex(12, 0);
+        assertThat(model.getSpanStartRow(spanIndex)).isEqualTo(8);
+        assertThat(model.getSpanEndColumn(spanIndex)).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBlocks() throws Exception {
+        var model = createModel(2);
+        model.findSpanIndex(0, 0);
+        complete(0);
+        model.findSpanIndex(10, 0);
+        complete(10);
+        model.findSpanIndex(0, 0);
+        model.findSpanIndex(20, 0);
+        complete(20);
+
+        assertThat(model.isLoaded(0)).isTrue();
+        assertThat(model.isLoaded(10)).isFalse();
+        assertThat(model.isLoaded(20)).isTrue();
+        assertThat(model.findSpanIndex(12, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(loads.keySet()).containsExactly(10);
+    }
+
+    @Test
+    public void ignoresLoadsStartedBeforeClear() throws Exception {
+        var model = createModel(10);
+        model.findSpanIndex(0, 0);
+        var future = loads.get(0);
+        model.clear();
+        loads.put(0, future);
+        complete(0);
+
+        assertThat(model.isLoaded(0)).isFalse();
+        model.findSpanIndex(0, 0);
+        complete(0);
+        assertThat(model.getCellSpanContaining(5, 0)).contains(CellSpan.fromStartEnd(2, 0, 5, 0));
+    }
+
+    @Test
+    public void keepsFailedBlocksUntilRetry() throws Exception {
+        var model = createModel(10);
+        model.findSpanIndex(0, 0);
+        var error = new IllegalStateException("offline");
+        loads.remove(0).completeExceptionally(error);
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(model.getLoadFailure(3)).contains(error);
+        assertThat(model.findSpanIndex(3, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(loads).isEmpty();
+
+        model.retryFailedBlocks();
+        assertThat(model.getLoadFailure(3)).isEmpty();
+        model.findSpanIndex(3, 0);
+        complete(0);
+        assertThat(model.getCellSpanContaining(3, 0)).contains(CellSpan.fromStartEnd(2, 0, 5, 0));
+    }
+
+    @Test
+    public void reportsLoaderThrowingAsFailedLoad() throws Exception {
+        var failures = new ArrayList<CellSpan>();
+        var calls = new int[1];
+        var model = new LazySpanTableModel(new SpanBlockLoader() {
+            @Override
+            public CompletionStage<List<CellSpan>> loadSpans(int firstRow, int lastRow) {
+                calls[0]++;
+                throw new IllegalStateException("offline");
+            }
+
+            @Override
+            public void loadFailed(int firstRow, int lastRow, Throwable error) {
+                failures.add(CellSpan.fromStartEnd(firstRow, 0, lastRow, 0));
+            }
+        }, 10, 10, new int[]{0, 1});
+
+        assertThat(model.findSpanIndex(13, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        SwingUtilities.invokeAndWait(() -> {
+        });
+        model.findSpanIndex(13, 0);
+        model.findSpanIndex(14, 1);
+
+        assertThat(calls[0]).isEqualTo(1);
+        assertThat(failures).containsExactly(CellSpan.fromStartEnd(10, 0, 19, 0));
+        assertThat(model.getLoadFailure(15)).hasValueSatisfying(
+                error -> assertThat(error).hasMessage("offline"));
+
+        model.clear();
+        model.findSpanIndex(13, 0);
+        assertThat(calls[0]).isEqualTo(2);
+    }
+}
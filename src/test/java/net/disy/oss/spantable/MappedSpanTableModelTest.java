@@ -0,0 +1,67 @@
+package net.disy.oss.spantable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedSpanTableModelTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void agreesWithBruteForceOnRandomSpans() throws IOException {
+        var random = new Random(815);
+        var spans = RandomSpans.create(random);
+        var file = folder.newFile().toPath();
+        MappedSpanTableModel.write(spans, RandomSpans.ALL_COLUMNS, file);
+        var model = MappedSpanTableModel.open(file);
+        for (int row = 0; row < RandomSpans.ROWS; row++) {
+            for (int column = 0; column < RandomSpans.COLUMNS; column++) {
+                assertThat(model.getCellSpanContaining(row, column).orElse(null))
+                        .isEqualTo(RandomSpans.containing(spans, row, column));
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            var query = RandomSpans.randomQuery(random);
+            assertThat(model.getIntersectingCellSpans(query))
+                    .containsExactlyInAnyOrderElementsOf(RandomSpans.intersecting(spans, query));
+        }
+        assertThat(model.containsSpans(RandomSpans.COLUMNS - 1)).isTrue();
+        assertThat(model.containsSpans(RandomSpans.COLUMNS)).isFalse();
+    }
+
+    @Test
+    public void opensEmptyIndex() throws IOException {
+        var file = folder.newFile().toPath();
+        MappedSpanTableModel.write(List.of(), new int[0], file);
+        var model = MappedSpanTableModel.open(file);
+
+        assertThat(model.findSpanIndex(0, 0)).isEqualTo(ISpanTableModel.NO_SPAN);
+        assertThat(model.getIntersectingCellSpans(new CellSpan(0, 0, 10, 10))).isEmpty();
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        var file = folder.newFile().toPath();
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThatThrownBy(() -> MappedSpanTableModel.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not a span index");
+
+        MappedSpanTableModel.write(List.of(new CellSpan(0, 0, 2, 2)), new int[]{0, 1}, file);
+        var bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThatThrownBy(() -> MappedSpanTableModel.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Truncated span index");
+    }
+}
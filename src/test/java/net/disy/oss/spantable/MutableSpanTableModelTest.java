@@ -0,0 +1,49 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MutableSpanTableModelTest {
+
+    @Test
+    public void addsAndRemovesSpans() {
+        var model = new MutableSpanTableModel(new int[]{0, 1, 2});
+        var span = new CellSpan(3, 0, 4, 2);
+        model.addSpan(span);
+        assertThat(model.getCellSpanContaining(6, 1)).contains(span);
+        assertThat(model.getIntersectingCellSpans(new CellSpan(0, 0, 10, 3))).containsExactly(span);
+
+        assertThat(model.removeSpan(span)).isTrue();
+        assertThat(model.removeSpan(span)).isFalse();
+        assertThat(model.getCellSpanContaining(6, 1)).isEmpty();
+    }
+
+    @Test
+    public void rejectsIntersectingSpan() {
+        var model = new MutableSpanTableModel(List.of(new CellSpan(0, 0, 2, 2)), new int[]{0, 1});
+        assertThatThrownBy(() -> model.addSpan(new CellSpan(1, 1, 2, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void replacesIntersectingSpansAndNotifiesOnce() {
+        var model = new MutableSpanTableModel(
+                List.of(new CellSpan(0, 0, 2, 1), new CellSpan(2, 0, 2, 1), new CellSpan(6, 0, 2, 1)),
+                new int[]{0, 1});
+        var events = new ArrayList<SpanModelEvent>();
+        model.addSpanModelListener(events::add);
+
+        var merged = new CellSpan(1, 0, 2, 2);
+        model.replaceSpans(List.of(merged));
+
+        assertThat(model.getIntersectingCellSpans(new CellSpan(0, 0, 10, 2)))
+                .containsExactlyInAnyOrder(merged, new CellSpan(6, 0, 2, 1));
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getArea()).isEqualTo(CellSpan.fromStartEnd(0, 0, 3, 1));
+    }
+}
@@ -0,0 +1,40 @@
+package net.disy.oss.spantable;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedSpanTableModelTest {
+
+    @Test
+    public void returnsWideCellSpanOnlyOnce() {
+        var span = new CellSpan(2, 0, 3, 3);
+        var model = new PackedSpanTableModel(List.of(span), new int[]{0, 1, 2});
+        assertThat(model.getIntersectingCellSpans(new CellSpan(0, 0, 10, 3)))
+                .containsExactly(span);
+        assertThat(model.getCellSpanContaining(4, 2)).contains(span);
+        assertThat(model.getCellSpanContaining(5, 2)).isEmpty();
+        assertThat(model.getCellSpanContaining(4, 3)).isEmpty();
+    }
+
+    @Test
+    public void agreesWithBruteForceOnRandomSpans() {
+        var random = new Random(4711);
+        var spans = RandomSpans.create(random);
+        var model = new PackedSpanTableModel(spans, RandomSpans.ALL_COLUMNS);
+        for (int row = 0; row < RandomSpans.ROWS; row++) {
+            for (int column = 0; column < RandomSpans.COLUMNS; column++) {
+                assertThat(model.getCellSpanContaining(row, column).orElse(null))
+                        .isEqualTo(RandomSpans.containing(spans, row, column));
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            var query = RandomSpans.randomQuery(random);
+            assertThat(model.getIntersectingCellSpans(query))
+                    .containsExactlyInAnyOrderElementsOf(RandomSpans.intersecting(spans, query));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package net.disy.oss.spantable;
+
+import java.awt.ComponentOrientation;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaintGeometryTest {
+
+    @Test
+    public void matchesCellRectsOfTable() {
+        var table = createTable();
+        assertMatchesTable(table);
+    }
+
+    @Test
+    public void matchesCellRectsOfRightToLeftTable() {
+        var table = createTable();
+        table.setComponentOrientation(ComponentOrientation.RIGHT_TO_LEFT);
+        assertMatchesTable(table);
+    }
+
+    @Test
+    public void clipsAreaToPaintedCells() {
+        var table = createTable();
+        var geometry = new PaintGeometry();
+        geometry.update(table, 2, 5, 1, 3);
+
+        var areaRect = geometry.getAreaRect(0, 0, 10, 2, new Rectangle());
+
+        var expected = table.getCellRect(2, 1, false);
+        expected.add(table.getCellRect(5, 2, false));
+        assertThat(areaRect).isEqualTo(expected);
+        assertThat(geometry.isPainted(1, 1)).isFalse();
+        assertThat(geometry.isPainted(5, 3)).isTrue();
+    }
+
+    private static void assertMatchesTable(JTable table) {
+        var geometry = new PaintGeometry();
+        geometry.update(table, 3, 17, 1, 4);
+        var cellRect = new Rectangle();
+        for (int row = 3; row <= 17; row++) {
+            for (int column = 1; column <= 4; column++) {
+                assertThat(geometry.getCellRect(row, column, cellRect))
+                    .isEqualTo(table.getCellRect(row, column, false));
+            }
+        }
+        var areaRect = table.getCellRect(4, 1, false);
+        areaRect.add(table.getCellRect(9, 3, false));
+        assertThat(geometry.getAreaRect(4, 1, 9, 3, new Rectangle())).isEqualTo(areaRect);
+    }
+
+    private static JTable createTable() {
+        var table = new JTable(new DefaultTableModel(20, 6));
+        table.setIntercellSpacing(new Dimension(3, 2));
+        for (int row = 0; row < 20; row++) {
+            table.setRowHeight(row, 10 + (row * 7) % 23);
+        }
+        table.getColumnModel().getColumn(2).setPreferredWidth(140);
+        table.setSize(600, table.getPreferredSize().height);
+        table.doLayout();
+        return table;
+    }
+}
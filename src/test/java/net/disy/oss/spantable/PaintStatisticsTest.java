@@ -0,0 +1,58 @@
+package net.disy.oss.spantable;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PaintStatisticsTest {
+
+    @Test
+    public void countsWorkOfEveryFrame() {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(4, 3),
+                new SpanTableModel(List.of(new CellSpan(0, 0, 2, 1)), new int[]{0})));
+        var ui = new SpanTableUi();
+        table.setUI(ui);
+        var frames = new ArrayList<PaintStatistics>();
+        ui.setMetrics(frames::add);
+        ui.setRenderCacheSize(1 << 20);
+        table.setSize(150, 4 * table.getRowHeight());
+        table.doLayout();
+
+        paint(table);
+        paint(table);
+        ui.setMetrics(null);
+        paint(table);
+
+        assertThat(frames).hasSize(2);
+        var first = frames.get(0);
+        assertThat(first.getPaintedSpans()).isEqualTo(1);
+        assertThat(first.getPaintedCells()).isEqualTo(10);
+        assertThat(first.getSpanQueries()).isEqualTo(1);
+        assertThat(first.getDirtyArea()).isEqualTo(150L * 4 * table.getRowHeight());
+        assertThat(first.getRenderCacheMisses()).isEqualTo(3);
+        assertThat(first.getRenderCacheHits()).isZero();
+        assertThat(first.getRendererCalls()).isEqualTo(11);
+        assertThat(first.getGridLines()).isPositive();
+        assertThat(first.getPaintNanos()).isPositive();
+        var second = frames.get(1);
+        assertThat(second.getRenderCacheHits()).isEqualTo(3);
+        assertThat(second.getRendererCalls()).isEqualTo(8);
+    }
+
+    private static void paint(JTable table) {
+        var image = new BufferedImage(table.getWidth(), table.getHeight(), BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setClip(0, 0, table.getWidth(), table.getHeight());
+        table.getUI().paint(g, table);
+        g.dispose();
+    }
+}
@@ -0,0 +1,72 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates random, not intersecting CellSpans and answers queries on them by brute force.
+ */
+class RandomSpans {
+    static final int ROWS = 200;
+    static final int COLUMNS = 8;
+    static final int[] ALL_COLUMNS = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    static List<CellSpan> create(Random random) {
+        var occupied = new boolean[ROWS][COLUMNS];
+        var spans = new ArrayList<CellSpan>();
+        for (int i = 0; i < 300; i++) {
+            var row = random.nextInt(ROWS);
+            var column = random.nextInt(COLUMNS);
+            var candidate = new CellSpan(row, column,
+                    1 + random.nextInt(Math.min(40, ROWS - row)),
+                    1 + random.nextInt(Math.min(3, COLUMNS - column)));
+            if (isFree(occupied, candidate)) {
+                for (int r = candidate.getStartRow(); r <= candidate.getEndRow(); r++) {
+                    for (int c = candidate.getStartColumn(); c <= candidate.getEndColumn(); c++) {
+                        occupied[r][c] = true;
+                    }
+                }
+                spans.add(candidate);
+            }
+        }
+        return spans;
+    }
+
+    static CellSpan randomQuery(Random random) {
+        var startRow = random.nextInt(ROWS);
+        var startColumn = random.nextInt(COLUMNS);
+        return new CellSpan(startRow, startColumn,
+                1 + random.nextInt(30), 1 + random.nextInt(COLUMNS - startColumn));
+    }
+
+    static CellSpan containing(List<CellSpan> spans, int row, int column) {
+        for (var span : spans) {
+            if (span.contains(row, column)) {
+                return span;
+            }
+        }
+        return null;
+    }
+
+    static List<CellSpan> intersecting(List<CellSpan> spans, CellSpan query) {
+        var result = new ArrayList<CellSpan>();
+        for (var span : spans) {
+            if (span.intersects(query)) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isFree(boolean[][] occupied, CellSpan candidate) {
+        for (int r = candidate.getStartRow(); r <= candidate.getEndRow(); r++) {
+            for (int c = candidate.getStartColumn(); c <= candidate.getEndColumn(); c++) {
+                if (occupied[r][c]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
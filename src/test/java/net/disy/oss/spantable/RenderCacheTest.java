@@ -0,0 +1,87 @@
+package net.disy.oss.spantable;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RenderCacheTest {
+
+    private static RenderCache.Key key(Object value) {
+        return new RenderCache.Key(null, value, false, false, 0, 0, 0, 0, 10, 10, 1, 1);
+    }
+
+    private static RenderCache.Entry entry() {
+        // 10 * 10 * 4 = 400 bytes
+        return new RenderCache.Entry(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), Color.WHITE);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() {
+        var cache = new RenderCache(1000);
+        cache.put(key("a"), entry());
+        cache.put(key("b"), entry());
+        cache.get(key("a"));
+        cache.put(key("c"), entry());
+
+        assertThat(cache.get(key("a"))).isNotNull();
+        assertThat(cache.get(key("b"))).isNull();
+        assertThat(cache.get(key("c"))).isNotNull();
+        assertThat(cache.getBytes()).isEqualTo(800);
+    }
+
+    @Test
+    public void skipsEntriesLargerThanTheBudget() {
+        var cache = new RenderCache(100);
+        cache.put(key("a"), entry());
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getBytes()).isZero();
+    }
+
+    @Test
+    public void reusesRenderedCellsUntilTheModelChanges() {
+        var tableModel = new DefaultTableModel(new Object[][]{{"a", "1"}, {"a", "2"}}, new Object[]{"A", "B"});
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                tableModel,
+                new SpanTableModel(List.of(new CellSpan(0, 0, 2, 1)), new int[]{0})));
+        var ui = new SpanTableUi();
+        table.setUI(ui);
+        ui.setRenderCacheSize(1 << 20);
+        var calls = new int[1];
+        table.getColumnModel().getColumn(0).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(
+                    JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                calls[0]++;
+                return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            }
+        });
+        table.setSize(200, 2 * table.getRowHeight());
+
+        paint(table);
+        paint(table);
+        assertThat(calls[0]).isEqualTo(1);
+
+        tableModel.setValueAt("3", 1, 1);
+        paint(table);
+        assertThat(calls[0]).isEqualTo(2);
+    }
+
+    private static void paint(JTable table) {
+        var image = new BufferedImage(table.getWidth(), table.getHeight(), BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setClip(0, 0, table.getWidth(), table.getHeight());
+        table.getUI().paint(g, table);
+        g.dispose();
+    }
+}
@@ -0,0 +1,92 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanSelectionModelTest {
+
+    @Test
+    public void splitsSelectedAreasWhenRemoving() {
+        var model = new SpanSelectionModel();
+        model.addSelection(CellSpan.fromStartEnd(0, 0, 9, 9));
+        model.removeSelection(CellSpan.fromStartEnd(3, 3, 5, 5));
+
+        assertThat(model.isCellSelected(2, 4)).isTrue();
+        assertThat(model.isCellSelected(4, 4)).isFalse();
+        assertThat(model.isSelected(CellSpan.fromStartEnd(3, 3, 5, 5))).isFalse();
+        assertThat(model.isSelected(CellSpan.fromStartEnd(3, 3, 5, 6))).isTrue();
+        assertThat(model.getSelectedAreas()).containsExactlyInAnyOrder(
+                CellSpan.fromStartEnd(0, 0, 2, 9),
+                CellSpan.fromStartEnd(6, 0, 9, 9),
+                CellSpan.fromStartEnd(3, 0, 5, 2),
+                CellSpan.fromStartEnd(3, 6, 5, 9));
+    }
+
+    @Test
+    public void selectsSameCellsAsBruteForce() {
+        var random = new Random(11);
+        var model = new SpanSelectionModel();
+        var expected = new boolean[RandomSpans.ROWS][RandomSpans.COLUMNS];
+        for (int i = 0; i < 200; i++) {
+            var area = RandomSpans.randomQuery(random);
+            var add = random.nextBoolean();
+            if (add) {
+                model.addSelection(area);
+            } else {
+                model.removeSelection(area);
+            }
+            area.forEachCell((row, column) -> {
+                if (row < RandomSpans.ROWS) {
+                    expected[row][column] = add;
+                }
+            });
+        }
+
+        for (int row = 0; row < RandomSpans.ROWS; row++) {
+            for (int column = 0; column < RandomSpans.COLUMNS; column++) {
+                assertThat(model.isCellSelected(row, column)).isEqualTo(expected[row][column]);
+            }
+        }
+        var cells = 0;
+        for (var area : model.getSelectedAreas()) {
+            var rows = Math.min(area.getEndRow(), RandomSpans.ROWS - 1) - area.getStartRow() + 1;
+            cells += Math.max(rows, 0) * area.getColumnSpan();
+        }
+        var expectedCells = 0;
+        for (var row : expected) {
+            for (var selected : row) {
+                expectedCells += selected ? 1 : 0;
+            }
+        }
+        assertThat(cells).isEqualTo(expectedCells);
+    }
+
+    @Test
+    public void firesChangedArea() {
+        var model = new SpanSelectionModel();
+        var events = new ArrayList<SpanSelectionEvent>();
+        model.addSpanSelectionListener(events::add);
+
+        model.setSelection(CellSpan.fromStartEnd(1, 1, 2, 2));
+        model.setSelection(CellSpan.fromStartEnd(1, 1, 2, 2));
+        model.addSelection(CellSpan.fromStartEnd(4, 0, 4, 3));
+        model.removeSelection(CellSpan.fromStartEnd(8, 0, 9, 3));
+        model.removeSelection(CellSpan.fromStartEnd(2, 0, 4, 1));
+        model.setSelection(CellSpan.fromStartEnd(6, 2, 7, 2));
+        model.clearSelection();
+        model.clearSelection();
+
+        assertThat(events).extracting(SpanSelectionEvent::getArea).containsExactly(
+                CellSpan.fromStartEnd(1, 1, 2, 2),
+                CellSpan.fromStartEnd(4, 0, 4, 3),
+                CellSpan.fromStartEnd(2, 0, 4, 1),
+                // the bounds of the replaced and the new selection
+                CellSpan.fromStartEnd(1, 1, 7, 3),
+                null);
+        assertThat(model.isSelectionEmpty()).isTrue();
+    }
+}
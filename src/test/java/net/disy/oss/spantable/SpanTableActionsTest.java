@@ -0,0 +1,131 @@
+package net.disy.oss.spantable;
+
+import java.awt.event.ActionEvent;
+import java.util.List;
+
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.JScrollPane;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanTableActionsTest {
+
+    private static SpanTable createTable() {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(6, 4),
+                new SpanTableModel(List.of(new CellSpan(1, 0, 3, 2)), new int[]{0, 1})));
+        table.setUI(new SpanTableUi());
+        table.setCellSelectionEnabled(true);
+        table.selectAll();
+        return table;
+    }
+
+    private static void moveLead(SpanTable table, int row, int column) {
+        ((DefaultListSelectionModel) table.getSelectionModel()).moveLeadSelectionIndex(row);
+        ((DefaultListSelectionModel) table.getColumnModel().getSelectionModel()).moveLeadSelectionIndex(column);
+    }
+
+    private static int[] perform(SpanTable table, String key) {
+        table.getActionMap().get(key).actionPerformed(new ActionEvent(table, ActionEvent.ACTION_PERFORMED, key));
+        return new int[]{
+                table.getSelectionModel().getLeadSelectionIndex(),
+                table.getColumnModel().getSelectionModel().getLeadSelectionIndex()};
+    }
+
+    @Test
+    public void visitsCellSpansOnceWhenMovingHorizontally() {
+        var table = createTable();
+        moveLead(table, 0, 3);
+
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(1, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(1, 2);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(1, 3);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(2, 2);
+
+        assertThat(perform(table, SpanTableActions.PREVIOUS_COLUMN_CELL)).containsExactly(1, 3);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_COLUMN_CELL)).containsExactly(1, 2);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_COLUMN_CELL)).containsExactly(1, 0);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_COLUMN_CELL)).containsExactly(0, 3);
+        assertThat(table.getSelectedRowCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void visitsCellSpansOnceWhenMovingVertically() {
+        var table = createTable();
+        moveLead(table, 0, 0);
+
+        assertThat(perform(table, SpanTableActions.NEXT_ROW_CELL)).containsExactly(1, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_ROW_CELL)).containsExactly(4, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_ROW_CELL)).containsExactly(5, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_ROW_CELL)).containsExactly(0, 1);
+        assertThat(perform(table, SpanTableActions.NEXT_ROW_CELL)).containsExactly(4, 1);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_ROW_CELL)).containsExactly(0, 1);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_ROW_CELL)).containsExactly(5, 0);
+    }
+
+    @Test
+    public void movesWithinSelectedAreasOfSpanSelectionModel() {
+        var table = new SpanTable();
+        table.setModel(new DefaultTableModel(3, 3));
+        table.setUI(new SpanTableUi());
+        table.setCellSelectionEnabled(true);
+        table.setSpanSelectionModel(new SpanSelectionModel());
+        table.changeSelection(0, 0, false, false);
+        table.changeSelection(0, 2, true, false);
+        table.changeSelection(2, 0, true, false);
+        table.changeSelection(0, 0, true, false);
+
+        // the selected rows and columns only contain the cell (2, 2), which is not selected
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(0, 2);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(2, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(0, 2);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_ROW_CELL)).containsExactly(2, 0);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_ROW_CELL)).containsExactly(0, 2);
+        assertThat(table.getSpanSelectionModel().getSelectedAreas()).containsExactlyInAnyOrder(
+                new CellSpan(0, 2, 1, 1),
+                new CellSpan(2, 0, 1, 1));
+    }
+
+    @Test
+    public void skipsUnselectedRows() {
+        var table = createTable();
+        table.setRowSelectionInterval(0, 0);
+        table.addRowSelectionInterval(5, 5);
+        table.setColumnSelectionInterval(2, 3);
+        moveLead(table, 0, 3);
+
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(5, 2);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(5, 3);
+        assertThat(perform(table, SpanTableActions.NEXT_COLUMN_CELL)).containsExactly(0, 2);
+        assertThat(perform(table, SpanTableActions.PREVIOUS_ROW_CELL)).containsExactly(5, 3);
+    }
+
+    @Test
+    public void pagesPastCoveredRows() {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(40, 2),
+                new SpanTableModel(List.of(CellSpan.fromStartEnd(5, 0, 30, 0)), new int[]{0})));
+        table.setUI(new SpanTableUi());
+        table.setRowHeight(16);
+        var scrollPane = new JScrollPane(table);
+        scrollPane.getViewport().setSize(200, 160);
+        table.changeSelection(0, 0, false, false);
+
+        // the page ends in row 10, which is covered by the CellSpan
+        assertThat(perform(table, SpanTableActions.SCROLL_DOWN_CHANGE_SELECTION)).containsExactly(31, 0);
+        assertThat(perform(table, SpanTableActions.SCROLL_UP_CHANGE_SELECTION)).containsExactly(5, 0);
+        // a page up from the start of the CellSpan moves a whole page
+        assertThat(perform(table, SpanTableActions.SCROLL_UP_CHANGE_SELECTION)).containsExactly(0, 0);
+
+        table.changeSelection(5, 0, false, false);
+        assertThat(perform(table, SpanTableActions.SCROLL_DOWN_CHANGE_SELECTION)).containsExactly(31, 0);
+        assertThat(perform(table, SpanTableActions.LAST_ROW)).containsExactly(39, 0);
+        assertThat(perform(table, SpanTableActions.FIRST_ROW)).containsExactly(0, 0);
+        assertThat(perform(table, SpanTableActions.NEXT_ROW)).containsExactly(1, 0);
+    }
+}
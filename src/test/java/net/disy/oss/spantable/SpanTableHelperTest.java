@@ -0,0 +1,167 @@
+package net.disy.oss.spantable;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanTableHelperTest {
+
+    private static SpanTable createTable(List<CellSpan> spans) {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(20, 4),
+                new SpanTableModel(spans, new int[]{0, 1, 2})));
+        return table;
+    }
+
+    @Test
+    public void findsSpansCutByUpperAndLeftEdge() {
+        var above = new CellSpan(0, 1, 4, 1);
+        var left = new CellSpan(5, 0, 1, 3);
+        var inside = new CellSpan(6, 2, 2, 1);
+        var table = createTable(List.of(above, left, inside));
+        var firstColumn = table.getCellRect(0, 1, true);
+        var viewRect = new Rectangle(
+                firstColumn.x,
+                2 * table.getRowHeight(),
+                2 * firstColumn.width,
+                10 * table.getRowHeight());
+
+        assertThat(SpanTableHelper.getEdgeSpans(table, table.getSpanModel(), viewRect))
+                .containsExactlyInAnyOrder(above, left);
+    }
+
+    @Test
+    public void findsNoSpansAtTheOrigin() {
+        var table = createTable(List.of(new CellSpan(0, 0, 4, 2)));
+
+        assertThat(SpanTableHelper.getEdgeSpans(table, table.getSpanModel(), new Rectangle(0, 0, 100, 100)))
+                .isEmpty();
+    }
+
+    @Test
+    public void detectsSelectedCellsInArea() {
+        var table = createTable(List.of());
+        table.setCellSelectionEnabled(true);
+        table.changeSelection(2, 1, false, false);
+        table.changeSelection(8, 1, true, false);
+        table.changeSelection(8, 3, true, false);
+
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 0, 0, 19, 3)).isTrue();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 3, 0, 7, 3)).isFalse();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 7, 2, 9, 2)).isFalse();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 7, 2, 9, 3)).isTrue();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 9, 0, 19, 3)).isFalse();
+    }
+
+    @Test
+    public void agreesWithIsCellSelected() {
+        var table = createTable(List.of());
+        table.setCellSelectionEnabled(true);
+        var random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            table.changeSelection(random.nextInt(20), random.nextInt(4), random.nextInt(4) == 0, random.nextBoolean());
+            table.setRowSelectionAllowed(random.nextInt(5) != 0);
+            table.setColumnSelectionAllowed(random.nextInt(5) != 0);
+            var startRow = random.nextInt(20);
+            var startColumn = random.nextInt(4);
+            var area = CellSpan.fromStartEnd(
+                    startRow,
+                    startColumn,
+                    startRow + random.nextInt(20 - startRow),
+                    startColumn + random.nextInt(4 - startColumn));
+            var expected = new AtomicBoolean();
+            area.forEachCell((row, column) -> expected.compareAndSet(false, table.isCellSelected(row, column)));
+
+            assertThat(SpanTableHelper.isAnyCellSelected(
+                    table,
+                    area.getStartRow(),
+                    area.getStartColumn(),
+                    area.getEndRow(),
+                    area.getEndColumn()))
+                    .as(area.toString())
+                    .isEqualTo(expected.get());
+        }
+    }
+
+    @Test
+    public void asksOverriddenIsCellSelected() {
+        var table = new SpanTable() {
+            @Override
+            public boolean isCellSelected(int row, int column) {
+                return row == 5 && column == 2;
+            }
+        };
+        table.setModel(new DefaultTableModel(20, 4));
+
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 0, 0, 4, 3)).isFalse();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 3, 1, 7, 2)).isTrue();
+    }
+
+    @Test
+    public void growsDirtyRectOnlyToTheVisiblePartOfSpans() {
+        var span = new CellSpan(0, 0, 20, 2);
+        var table = createTable(List.of(span));
+        table.setSize(400, 20 * table.getRowHeight());
+        var clipRect = new Rectangle(0, 5 * table.getRowHeight(), 400, 5 * table.getRowHeight());
+        var dirtyRect = table.getCellRect(7, 1, false);
+
+        SpanTableHelper.adjustDirtyRect(table, table.getSpanModel(), dirtyRect, clipRect, new Point());
+
+        var expected = table.getCellRect(5, 0, false);
+        expected.add(table.getCellRect(9, 1, false));
+        assertThat(dirtyRect).isEqualTo(expected);
+    }
+
+    @Test
+    public void keepsDirtyRectWithoutSpans() {
+        var table = createTable(List.of(new CellSpan(0, 0, 4, 1)));
+        table.setSize(400, 20 * table.getRowHeight());
+        var clipRect = new Rectangle(0, 0, 400, 20 * table.getRowHeight());
+        var dirtyRect = table.getCellRect(7, 2, false);
+        var expected = new Rectangle(dirtyRect);
+
+        SpanTableHelper.adjustDirtyRect(table, table.getSpanModel(), dirtyRect, clipRect, new Point());
+
+        assertThat(dirtyRect).isEqualTo(expected);
+    }
+
+    @Test
+    public void clipsDirtyRectOutsideTheClip() {
+        var table = createTable(List.of(new CellSpan(0, 0, 4, 1)));
+        table.setSize(400, 20 * table.getRowHeight());
+        var dirtyRect = table.getCellRect(15, 2, false);
+
+        SpanTableHelper.adjustDirtyRect(
+                table,
+                table.getSpanModel(),
+                dirtyRect,
+                new Rectangle(0, 0, 400, 5 * table.getRowHeight()),
+                new Point());
+
+        assertThat(dirtyRect.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void growsAreaToSpanClosure() {
+        var first = CellSpan.fromStartEnd(2, 1, 5, 1);
+        // only intersects the area after it was grown by the previous CellSpan
+        var second = CellSpan.fromStartEnd(4, 2, 9, 2);
+        var third = CellSpan.fromStartEnd(9, 0, 12, 1);
+        var outside = CellSpan.fromStartEnd(14, 0, 15, 2);
+        var table = createTable(List.of(first, second, third, outside));
+
+        assertThat(SpanTableHelper.getSpanClosure(table.getSpanModel(), CellSpan.fromStartEnd(0, 1, 3, 2)))
+                .isEqualTo(CellSpan.fromStartEnd(0, 0, 12, 2));
+        assertThat(SpanTableHelper.getSpanClosure(table.getSpanModel(), CellSpan.fromStartEnd(0, 3, 19, 3)))
+                .isEqualTo(CellSpan.fromStartEnd(0, 3, 19, 3));
+    }
+}
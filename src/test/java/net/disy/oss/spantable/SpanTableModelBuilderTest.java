@@ -0,0 +1,131 @@
+package net.disy.oss.spantable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SpanTableModelBuilderTest {
+
+    @Test
+    public void buildsSameModelWithParallelSort() {
+        var random = new Random(42);
+        var spans = RandomSpans.create(random);
+        var expected = new SpanTableModel(spans, RandomSpans.ALL_COLUMNS);
+        var model = new SpanTableModelBuilder(spans, RandomSpans.ALL_COLUMNS).setParallelSort(true).build();
+        for (int row = 0; row < RandomSpans.ROWS; row++) {
+            for (int column = 0; column < RandomSpans.COLUMNS; column++) {
+                assertThat(model.getCellSpanContaining(row, column))
+                        .isEqualTo(expected.getCellSpanContaining(row, column));
+            }
+        }
+    }
+
+    @Test
+    public void swapsModelOnEventDispatchThread() throws Exception {
+        var model = new DelegatingSpanTableModel(
+                new DefaultTableModel(10, 3),
+                new MutableSpanTableModel(new int[]{0}));
+        var events = new ArrayList<SpanModelEvent>();
+        var threads = new ArrayList<Boolean>();
+        model.addSpanModelListener(e -> {
+            events.add(e);
+            threads.add(SwingUtilities.isEventDispatchThread());
+        });
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var spanModel = new SpanTableModelBuilder(List.of(new CellSpan(0, 0, 2, 1)), new int[]{0})
+                    .buildAndSwap(model, executor)
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(model.getSpanModel()).isSameAs(spanModel);
+        } finally {
+            executor.shutdown();
+        }
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertThat(model.getCellSpanContaining(1, 0)).contains(new CellSpan(0, 0, 2, 1));
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getArea()).isNull();
+        assertThat(threads).containsExactly(true);
+    }
+
+    @Test
+    public void forwardsEventsOfCurrentSpanModel() {
+        var first = new MutableSpanTableModel(new int[]{0});
+        var second = new MutableSpanTableModel(new int[]{0});
+        var model = new DelegatingSpanTableModel(new DefaultTableModel(10, 3), first);
+        var events = new ArrayList<SpanModelEvent>();
+        model.addSpanModelListener(events::add);
+
+        first.addSpan(new CellSpan(0, 0, 2, 1));
+        model.setSpanModel(second);
+        first.addSpan(new CellSpan(4, 0, 2, 1));
+        second.addSpan(new CellSpan(6, 0, 2, 1));
+
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0).getArea()).isEqualTo(new CellSpan(0, 0, 2, 1));
+        assertThat(events.get(0).getSource()).isSameAs(model);
+        assertThat(events.get(1).getArea()).isNull();
+        assertThat(events.get(2).getArea()).isEqualTo(new CellSpan(6, 0, 2, 1));
+    }
+
+    @Test
+    public void findsAllConflictsLikeBruteForce() {
+        var random = new Random(7);
+        for (int run = 0; run < 20; run++) {
+            var spans = new ArrayList<>(RandomSpans.create(random));
+            for (int i = 0; i < 10; i++) {
+                spans.add(RandomSpans.randomQuery(random));
+            }
+            var expected = new ArrayList<SpanConflict>();
+            for (int i = 0; i < spans.size(); i++) {
+                for (int j = i + 1; j < spans.size(); j++) {
+                    if (spans.get(i).intersects(spans.get(j))) {
+                        expected.add(new SpanConflict(spans.get(i), spans.get(j)));
+                    }
+                }
+            }
+
+            var conflicts = SpanTableModelBuilder.findConflicts(spans);
+
+            assertThat(conflicts).hasSameSizeAs(expected);
+            for (var conflict : conflicts) {
+                assertThat(conflict.getFirst().intersects(conflict.getSecond())).isTrue();
+                assertThat(conflict.getFirst().getStartRow()).isLessThanOrEqualTo(conflict.getSecond().getStartRow());
+            }
+        }
+    }
+
+    @Test
+    public void reportsSpansSharingColumnsOnce() {
+        var first = new CellSpan(0, 0, 3, 3);
+        var second = new CellSpan(2, 1, 3, 3);
+        var third = new CellSpan(10, 0, 1, 1);
+
+        assertThat(SpanTableModelBuilder.findConflicts(List.of(first, second, third)))
+                .containsExactly(new SpanConflict(first, second));
+        assertThat(SpanTableModelBuilder.findConflicts(RandomSpans.create(new Random(3)))).isEmpty();
+    }
+
+    @Test
+    public void rejectsIntersectingSpansWhenValidating() {
+        var builder = new SpanTableModelBuilder(
+                List.of(new CellSpan(0, 0, 3, 1), new CellSpan(2, 0, 3, 1)), new int[]{0})
+                .setValidate(true);
+
+        assertThatThrownBy(builder::build)
+                .isInstanceOf(OverlappingSpansException.class)
+                .satisfies(e -> assertThat(((OverlappingSpansException) e).getConflicts()).containsExactly(
+                        new SpanConflict(new CellSpan(0, 0, 3, 1), new CellSpan(2, 0, 3, 1))));
+    }
+}
@@ -0,0 +1,124 @@
+package net.disy.oss.spantable;
+
+import java.util.List;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanTableTest {
+
+    private static SpanTable createTable() {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(20, 4),
+                new SpanTableModel(List.of(
+                        CellSpan.fromStartEnd(2, 1, 5, 2),
+                        // only intersects the selection after it was grown by the first CellSpan
+                        CellSpan.fromStartEnd(5, 0, 9, 0)), new int[]{0, 1, 2})));
+        table.setCellSelectionEnabled(true);
+        return table;
+    }
+
+    @Test
+    public void keepsRectangularSelectionByDefault() {
+        var table = createTable();
+        table.changeSelection(0, 0, false, false);
+        table.changeSelection(3, 1, false, true);
+
+        assertThat(table.getSelectedRows()).containsExactly(0, 1, 2);
+        assertThat(table.getSelectedColumns()).containsExactly(0, 1);
+    }
+
+    @Test
+    public void growsExtendedSelectionToSpanClosure() {
+        var table = createTable();
+        table.setSpanClosureSelection(true);
+        table.changeSelection(0, 0, false, false);
+        table.changeSelection(3, 2, false, true);
+
+        assertThat(table.getSelectedRows()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(table.getSelectedColumns()).containsExactly(0, 1, 2);
+        assertThat(table.getSelectionModel().getAnchorSelectionIndex()).isZero();
+        assertThat(table.getSelectionModel().getLeadSelectionIndex()).isEqualTo(2);
+        assertThat(table.getColumnModel().getSelectionModel().getLeadSelectionIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void coalescesClosureWhileAdjusting() throws Exception {
+        var table = createTable();
+        table.setSpanClosureSelection(true);
+        table.changeSelection(0, 0, false, false);
+        var selectionModel = table.getSelectionModel();
+        SwingUtilities.invokeAndWait(() -> {
+            selectionModel.setValueIsAdjusting(true);
+            table.changeSelection(1, 1, false, true);
+            table.changeSelection(3, 2, false, true);
+            assertThat(table.getSelectedRows()).containsExactly(0, 1, 2);
+        });
+        SwingUtilities.invokeAndWait(() -> selectionModel.setValueIsAdjusting(false));
+
+        assertThat(table.getSelectedRows()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    }
+
+    @Test
+    public void selectsRectanglesWithSpanSelectionModel() {
+        var table = createTable();
+        var selection = new SpanSelectionModel();
+        table.setSpanSelectionModel(selection);
+        table.changeSelection(0, 3, false, false);
+        table.changeSelection(3, 2, true, false);
+        table.changeSelection(12, 0, true, false);
+        table.changeSelection(13, 1, true, true);
+
+        assertThat(selection.getSelectedAreas()).containsExactlyInAnyOrder(
+                CellSpan.fromStartEnd(0, 3, 0, 3),
+                CellSpan.fromStartEnd(2, 1, 5, 2),
+                CellSpan.fromStartEnd(12, 0, 13, 1));
+        assertThat(table.isCellSelected(0, 3)).isTrue();
+        assertThat(table.isCellSelected(5, 2)).isTrue();
+        // selected in the row and the column selection, but not in the rectangles
+        assertThat(table.isCellSelected(0, 1)).isFalse();
+        assertThat(SpanTableHelper.isAnyCellSelected(table, 6, 0, 11, 3)).isFalse();
+
+        table.changeSelection(4, 1, true, false);
+        assertThat(table.isCellSelected(2, 1)).isFalse();
+        table.clearSelection();
+        assertThat(selection.isSelectionEmpty()).isTrue();
+    }
+
+    @Test
+    public void extendsToSpanClosureWithSpanSelectionModel() {
+        var table = createTable();
+        var selection = new SpanSelectionModel();
+        table.setSpanSelectionModel(selection);
+        table.changeSelection(0, 0, false, false);
+        table.changeSelection(3, 2, false, true);
+
+        assertThat(selection.getSelectedAreas()).containsExactly(CellSpan.fromStartEnd(0, 0, 9, 2));
+        table.selectAll();
+        assertThat(selection.getSelectedAreas()).containsExactly(CellSpan.fromStartEnd(0, 0, 19, 3));
+    }
+
+    @Test
+    public void keepsSelectedRowWhenSorting() {
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                new DefaultTableModel(new Object[][]{{"c"}, {"b"}, {"a"}}, new Object[]{"A"}),
+                new SpanTableModel(List.of(), new int[]{0})));
+        var sorter = new TableRowSorter<>(table.getModel());
+        table.setRowSorter(sorter);
+        table.changeSelection(0, 0, false, false);
+
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(0, SortOrder.ASCENDING)));
+
+        assertThat(table.getSelectedRows()).containsExactly(2);
+        assertThat(table.getValueAt(table.getSelectedRow(), 0)).isEqualTo("c");
+    }
+}
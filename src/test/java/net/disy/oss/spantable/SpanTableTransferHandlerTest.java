@@ -0,0 +1,101 @@
+package net.disy.oss.spantable;
+
+import java.awt.datatransfer.DataFlavor;
+import java.io.Reader;
+import java.util.List;
+
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpanTableTransferHandlerTest {
+
+    private static SpanTable createTable() {
+        var tableModel = new DefaultTableModel(new Object[][]{
+                {"a", "x", "1"},
+                {"a", "x", "2"},
+                {"b", "<y>", "3"},
+        }, new Object[]{"A", "B", "C"});
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                tableModel,
+                new SpanTableModel(List.of(new CellSpan(0, 0, 2, 2)), new int[]{0, 1})));
+        table.setUI(new SpanTableUi());
+        table.setCellSelectionEnabled(true);
+        return table;
+    }
+
+    @Test
+    public void isInstalledBySpanTableUi() {
+        assertThat(createTable().getTransferHandler()).isInstanceOf(SpanTableTransferHandler.class);
+    }
+
+    @Test
+    public void exportsEveryCellAsText() throws Exception {
+        var table = createTable();
+        table.selectAll();
+        var transferable = new SpanTableTransferHandler().createTransferable(table);
+
+        assertThat(transferable.getTransferData(DataFlavor.stringFlavor))
+                .isEqualTo("a\tx\t1\na\tx\t2\nb\t<y>\t3\n");
+    }
+
+    @Test
+    public void exportsTheValuesAtTheTimeOfCopying() throws Exception {
+        var table = createTable();
+        table.setRowSelectionInterval(2, 2);
+        table.setColumnSelectionInterval(2, 2);
+        var transferable = new SpanTableTransferHandler().createTransferable(table);
+        table.setValueAt("changed", 2, 2);
+
+        assertThat(transferable.getTransferData(DataFlavor.stringFlavor)).isEqualTo("3\n");
+    }
+
+    @Test
+    public void exportsSelectedAreasOfSpanSelectionModel() throws Exception {
+        var table = createTable();
+        table.setSpanSelectionModel(new SpanSelectionModel());
+        table.changeSelection(2, 0, false, false);
+        table.changeSelection(0, 2, true, false);
+        var transferable = new SpanTableTransferHandler().createTransferable(table);
+
+        // the selected rows and columns would also contain the cells (0, 0) and (2, 2)
+        assertThat(transferable.getTransferData(DataFlavor.stringFlavor)).isEqualTo("\t1\nb\t\n");
+    }
+
+    @Test
+    public void mergesSpansInHtml() throws Exception {
+        var table = createTable();
+        table.selectAll();
+        var transferable = new SpanTableTransferHandler().createTransferable(table);
+
+        var reader = (Reader) transferable.getTransferData(new DataFlavor("text/html;class=java.io.Reader"));
+        var html = new StringBuilder();
+        var buffer = new char[7];
+        int count;
+        while ((count = reader.read(buffer)) >= 0) {
+            html.append(buffer, 0, count);
+        }
+        assertThat(html.toString()).isEqualTo("<html>\n<body>\n<table>\n" +
+                "<tr>\n  <td rowspan=\"2\" colspan=\"2\">a</td>\n  <td>1</td>\n</tr>\n" +
+                "<tr>\n  <td>2</td>\n</tr>\n" +
+                "<tr>\n  <td>b</td>\n  <td>&lt;y&gt;</td>\n  <td>3</td>\n</tr>\n" +
+                "</table>\n</body>\n</html>");
+    }
+
+    @Test
+    public void clipsSpansToTheSelection() throws Exception {
+        var table = createTable();
+        table.setRowSelectionInterval(1, 2);
+        table.setColumnSelectionInterval(1, 2);
+        var transferable = new SpanTableTransferHandler().createTransferable(table);
+
+        assertThat(transferable.getTransferData(new DataFlavor("text/html;class=java.lang.String")))
+                .isEqualTo("<html>\n<body>\n<table>\n" +
+                        "<tr>\n  <td>x</td>\n  <td>2</td>\n</tr>\n" +
+                        "<tr>\n  <td>&lt;y&gt;</td>\n  <td>3</td>\n</tr>\n" +
+                        "</table>\n</body>\n</html>");
+    }
+}
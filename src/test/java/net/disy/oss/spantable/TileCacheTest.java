@@ -0,0 +1,210 @@
+package net.disy.oss.spantable;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.ImageCapabilities;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ImageObserver;
+import java.awt.image.VolatileImage;
+import java.util.List;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TileCacheTest {
+
+    @Test
+    public void invalidatesIntersectingTiles() {
+        var cache = new TileCache(10);
+        var image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        var configuration = image.createGraphics().getDeviceConfiguration();
+        var first = cache.get(0, 0);
+        var second = cache.get(1, 0);
+        assertThat(cache.validate(first, configuration, 256, 256)).isTrue();
+        assertThat(cache.validate(second, configuration, 256, 256)).isTrue();
+        assertThat(cache.validate(first, configuration, 256, 256)).isFalse();
+
+        cache.invalidate(300, 10, 5, 5);
+        assertThat(cache.validate(first, configuration, 256, 256)).isFalse();
+        assertThat(cache.validate(second, configuration, 256, 256)).isTrue();
+    }
+
+    @Test
+    public void rendersRestoredTilesAgain() {
+        var image = new StubVolatileImage();
+        var configuration = new StubGraphicsConfiguration(image);
+        var cache = new TileCache(10);
+        var tile = cache.get(0, 0);
+        assertThat(cache.validate(tile, configuration, 256, 256)).isTrue();
+        assertThat(cache.validate(tile, configuration, 256, 256)).isFalse();
+
+        image.status = VolatileImage.IMAGE_RESTORED;
+        assertThat(cache.validate(tile, configuration, 256, 256)).isTrue();
+        assertThat(tile.getImage()).isSameAs(image);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedTiles() {
+        var cache = new TileCache(2);
+        var first = cache.get(0, 0);
+        cache.get(1, 0);
+        cache.get(0, 0);
+        cache.get(2, 0);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(0, 0)).isSameAs(first);
+    }
+
+    @Test
+    public void rendersOnlyRepaintedTiles() {
+        var tableModel = new DefaultTableModel(new Object[][]{{"a", "1"}, {"a", "2"}}, new Object[]{"A", "B"});
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(
+                tableModel,
+                new SpanTableModel(List.of(new CellSpan(0, 0, 2, 1)), new int[]{0})));
+        var ui = new SpanTableUi();
+        table.setUI(ui);
+        ui.setTileCacheSize(4);
+        var calls = new int[1];
+        table.getColumnModel().getColumn(0).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(
+                    JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                calls[0]++;
+                return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            }
+        });
+        table.setSize(200, 2 * table.getRowHeight());
+
+        paint(table);
+        var rendered = calls[0];
+        assertThat(rendered).isPositive();
+        paint(table);
+        assertThat(calls[0]).isEqualTo(rendered);
+
+        table.repaint(new Rectangle(0, 0, 10, 10));
+        paint(table);
+        assertThat(calls[0]).isGreaterThan(rendered);
+    }
+
+    private static void paint(JTable table) {
+        var image = new BufferedImage(table.getWidth(), table.getHeight(), BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setClip(0, 0, table.getWidth(), table.getHeight());
+        table.getUI().paint(g, table);
+        g.dispose();
+    }
+
+    /**
+     * Returns the given status once from validate and IMAGE_OK afterwards, like a real
+     * VolatileImage after its surface was restored.
+     */
+    private static final class StubVolatileImage extends VolatileImage {
+        private int status = IMAGE_OK;
+
+        @Override
+        public int validate(GraphicsConfiguration gc) {
+            var result = status;
+            status = IMAGE_OK;
+            return result;
+        }
+
+        @Override
+        public boolean contentsLost() {
+            return false;
+        }
+
+        @Override
+        public BufferedImage getSnapshot() {
+            return new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
+        }
+
+        @Override
+        public int getWidth() {
+            return 256;
+        }
+
+        @Override
+        public int getHeight() {
+            return 256;
+        }
+
+        @Override
+        public Graphics2D createGraphics() {
+            return getSnapshot().createGraphics();
+        }
+
+        @Override
+        public ImageCapabilities getCapabilities() {
+            return new ImageCapabilities(true);
+        }
+
+        @Override
+        public int getWidth(ImageObserver observer) {
+            return getWidth();
+        }
+
+        @Override
+        public int getHeight(ImageObserver observer) {
+            return getHeight();
+        }
+
+        @Override
+        public Object getProperty(String name, ImageObserver observer) {
+            return UndefinedProperty;
+        }
+    }
+
+    private static final class StubGraphicsConfiguration extends GraphicsConfiguration {
+        private final VolatileImage image;
+
+        private StubGraphicsConfiguration(VolatileImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public VolatileImage createCompatibleVolatileImage(int width, int height, int transparency) {
+            return image;
+        }
+
+        @Override
+        public GraphicsDevice getDevice() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return ColorModel.getRGBdefault();
+        }
+
+        @Override
+        public ColorModel getColorModel(int transparency) {
+            return ColorModel.getRGBdefault();
+        }
+
+        @Override
+        public AffineTransform getDefaultTransform() {
+            return new AffineTransform();
+        }
+
+        @Override
+        public AffineTransform getNormalizingTransform() {
+            return new AffineTransform();
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return new Rectangle(0, 0, 256, 256);
+        }
+    }
+}
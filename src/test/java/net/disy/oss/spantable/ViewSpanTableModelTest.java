@@ -0,0 +1,130 @@
+package net.disy.oss.spantable;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ViewSpanTableModelTest {
+
+    private static SpanTable createTable(List<CellSpan> spans) {
+        var tableModel = new DefaultTableModel(new Object[][]{
+                {"a", "x", 3},
+                {"a", "x", 1},
+                {"b", "y", 2},
+                {"b", "y", 0},
+        }, new Object[]{"A", "B", "C"});
+        var table = new SpanTable();
+        table.setModel(new DelegatingSpanTableModel(tableModel, new SpanTableModel(spans, new int[]{0, 1})));
+        return table;
+    }
+
+    @Test
+    public void passesModelCoordinatesThroughWithoutSorter() {
+        var table = createTable(List.of(new CellSpan(0, 0, 2, 2)));
+        assertThat(table.getSpanModel().getCellSpanContaining(1, 1)).contains(new CellSpan(0, 0, 2, 2));
+    }
+
+    @Test
+    public void splitsSpansAccordingToSortOrder() {
+        var table = createTable(List.of(new CellSpan(0, 0, 2, 1), new CellSpan(2, 0, 2, 1)));
+        var sorter = new TableRowSorter<>(table.getModel());
+        table.setRowSorter(sorter);
+        // sorting by column C interleaves the rows of both spans: 3, 1, 2, 0 -> rows 3, 1, 2, 0
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(2, SortOrder.ASCENDING)));
+        assertThat(table.getSpanModel().getCellSpanContaining(0, 0)).isEmpty();
+
+        // sorting by column A keeps the rows of each span together, in reverse order
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(0, SortOrder.DESCENDING)));
+        assertThat(table.getSpanModel().getCellSpanContaining(0, 0)).contains(new CellSpan(0, 0, 2, 1));
+        assertThat(table.getSpanModel().getCellSpanContaining(3, 0)).contains(new CellSpan(2, 0, 2, 1));
+    }
+
+    @Test
+    public void followsColumnOrder() {
+        var table = createTable(List.of(new CellSpan(0, 0, 2, 2)));
+        table.moveColumn(0, 2);
+        var spanModel = table.getSpanModel();
+        // model columns 0 and 1 are now view columns 2 and 0, so the span is split
+        assertThat(spanModel.getCellSpanContaining(1, 0)).contains(new CellSpan(0, 0, 2, 1));
+        assertThat(spanModel.getCellSpanContaining(1, 2)).contains(new CellSpan(0, 2, 2, 1));
+        assertThat(spanModel.containsSpans(1)).isFalse();
+
+        table.moveColumn(2, 1);
+        assertThat(spanModel.getCellSpanContaining(1, 1)).contains(new CellSpan(0, 0, 2, 2));
+    }
+
+    @Test
+    public void keepsViewSpansWhenColumnWithoutSpansIsUpdated() {
+        var tableModel = new DefaultTableModel(new Object[][]{
+                {"a", 3}, {"a", 1}, {"b", 2}, {"b", 0},
+        }, new Object[]{"A", "C"});
+        var lookups = new int[1];
+        var model = new DelegatingSpanTableModel(
+                tableModel, new SpanTableModel(List.of(new CellSpan(0, 0, 2, 1)), new int[]{0})) {
+            @Override
+            public long findSpanIndex(int row, int column) {
+                lookups[0]++;
+                return super.findSpanIndex(row, column);
+            }
+        };
+        var table = new SpanTable();
+        table.setModel(model);
+        var sorter = new TableRowSorter<>(table.getModel());
+        table.setRowSorter(sorter);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(0, SortOrder.DESCENDING)));
+        assertThat(table.getSpanModel().getCellSpanContaining(3, 0)).contains(new CellSpan(2, 0, 2, 1));
+
+        var derived = lookups[0];
+        tableModel.setValueAt(5, 0, 1);
+        assertThat(table.getSpanModel().getCellSpanContaining(3, 0)).contains(new CellSpan(2, 0, 2, 1));
+        assertThat(lookups[0]).isEqualTo(derived);
+
+        // an update re-sorting the rows still derives the CellSpans again
+        sorter.setSortsOnUpdates(true);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+        assertThat(table.getSpanModel().getCellSpanContaining(0, 0)).isEmpty();
+        // the rows of the span move to the start: 1, 5, 8, 9
+        tableModel.setValueAt(8, 2, 1);
+        tableModel.setValueAt(9, 3, 1);
+        assertThat(table.getSpanModel().getCellSpanContaining(0, 0)).contains(new CellSpan(0, 0, 2, 1));
+    }
+
+    @Test
+    public void repaintsChangedSpansInViewCoordinates() {
+        var tableModel = new DefaultTableModel(new Object[][]{
+                {"a", 3}, {"a", 1}, {"b", 2}, {"b", 0},
+        }, new Object[]{"A", "C"});
+        var spanModel = new MutableSpanTableModel(new int[]{0});
+        var repainted = new ArrayList<Rectangle>();
+        var table = new SpanTable() {
+            @Override
+            public void repaint(Rectangle r) {
+                repainted.add(new Rectangle(r));
+                super.repaint(r);
+            }
+        };
+        table.setModel(new DelegatingSpanTableModel(tableModel, spanModel));
+        var sorter = new TableRowSorter<>(table.getModel());
+        table.setRowSorter(sorter);
+        // model rows 0 and 2 are view rows 3 and 2
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+        table.setSize(200, 4 * table.getRowHeight());
+        repainted.clear();
+
+        spanModel.addSpan(CellSpan.fromStartEnd(0, 0, 0, 0));
+        spanModel.addSpan(CellSpan.fromStartEnd(2, 0, 2, 0));
+
+        assertThat(repainted).containsExactly(
+                table.getCellRect(3, 0, true),
+                table.getCellRect(2, 0, true));
+    }
+}